@@ -52,6 +52,9 @@ public class TCConfig {
     public static boolean useCoalFromStorageCart;
     public static boolean setOwnerOnPlacement;
     public static boolean keepChunksLoadedOnlyWhenMoving;
+    public static int keepChunksLoadedLingerTime;
+    public static boolean adaptivePhysicsSteps;
+    public static int suspendIdleTrainsDelay;
     public static boolean playSoundAtStation;
     public static int maxDetectorLength;
     public static int maxMinecartStackSize;
@@ -62,6 +65,9 @@ public class TCConfig {
     public static boolean craftingRequireWorkbench;
     public static boolean slowDownEmptyCarts;
     public static boolean enableSeatThirdPersonView;
+    public static double attachmentReducedDetailDistance;
+    public static int attachmentReducedDetailInterval;
+    public static double attachmentRootOnlyDistance;
     public static double slowDownMultiplierSlow;
     public static double slowDownMultiplierNormal;
     public static boolean refillAtStations;
@@ -73,6 +79,8 @@ public class TCConfig {
     public static boolean allowVerticalPitch;
     public static boolean allowUpsideDownRails;
     public static boolean allowNetherTeleport;
+    public static boolean pathFindingHeuristic;
+    public static int pathFindingMaxProcessingPerTick;
     public static boolean enableCeilingBlockCollision = true; // whether to allow blocks above the minecart to collide
     public static int collisionReEnterDelay = 100; // Delay before letting mobs/player enter again
     public static boolean EssentialsEnabled = false;
@@ -190,6 +198,20 @@ public class TCConfig {
         config.setHeader("keepChunksLoadedOnlyWhenMoving", "\nWhether or not chunks are only kept loaded when the train is moving");
         keepChunksLoadedOnlyWhenMoving = config.get("keepChunksLoadedOnlyWhenMoving", false);
 
+        config.setHeader("keepChunksLoadedLingerTime", "\nThe time in milliseconds chunks kept loaded by trains stay loaded after the last train left them");
+        config.addHeader("keepChunksLoadedLingerTime", "This avoids chunks being loaded and unloaded repeatedly when trains follow each other");
+        keepChunksLoadedLingerTime = Math.max(0, config.get("keepChunksLoadedLingerTime", 5000));
+
+        config.setHeader("adaptivePhysicsSteps", "\nWhether fast trains on plain, straight track are moved in update steps of up to a block");
+        config.addHeader("adaptivePhysicsSteps", "Otherwise they are moved in steps of 0.4 blocks, which costs more the faster the train moves");
+        config.addHeader("adaptivePhysicsSteps", "Track with signs, detector regions, mutex zones, slopes, curves or special rails always uses small steps");
+        adaptivePhysicsSteps = config.get("adaptivePhysicsSteps", false);
+
+        config.setHeader("suspendIdleTrainsDelay", "\nThe time in ticks unmanned trains must stand still before they are suspended");
+        config.addHeader("suspendIdleTrainsDelay", "Suspended trains do not update their attachments, sounds and positions to players");
+        config.addHeader("suspendIdleTrainsDelay", "until they are used again. This also pauses attachment animations. 0 disables it.");
+        suspendIdleTrainsDelay = Math.max(0, config.get("suspendIdleTrainsDelay", 0));
+
         config.setHeader("enableCeilingBlockCollision", "\nWhether to enable or cancel collisions with blocks above minecarts");
         config.addHeader("enableCeilingBlockCollision", "Some constructions depend on these block collisions to block minecarts");
         config.addHeader("enableCeilingBlockCollision", "If these collisions are unwanted, they can be turned off here");
@@ -204,6 +226,17 @@ public class TCConfig {
         config.addHeader("enableSeatThirdPersonView", "Turning this off only causes this mode to activate when going upside-down");
         enableSeatThirdPersonView = config.get("enableSeatThirdPersonView", false);
 
+        config.setHeader("attachmentReducedDetailDistance", "\nThe distance in blocks beyond which players receive the movement of train attachments less often");
+        config.addHeader("attachmentReducedDetailDistance", "This reduces the network traffic for players watching trains from far away. 0 disables it.");
+        attachmentReducedDetailDistance = Math.max(0.0, config.get("attachmentReducedDetailDistance", 0.0));
+
+        config.setHeader("attachmentReducedDetailInterval", "\nThe interval in ticks at which movement is sent to players beyond the reduced detail distance");
+        attachmentReducedDetailInterval = Math.max(1, config.get("attachmentReducedDetailInterval", 5));
+
+        config.setHeader("attachmentRootOnlyDistance", "\nThe distance in blocks beyond which players only see the minecarts themselves, and not the attachments on them");
+        config.addHeader("attachmentRootOnlyDistance", "Movement is sent to these players as with reduced detail. 0 disables it.");
+        attachmentRootOnlyDistance = Math.max(0.0, config.get("attachmentRootOnlyDistance", 0.0));
+
         config.setHeader("maxDetectorLength", "\nThe maximum length a detector region (between two detectors) can be");
         maxDetectorLength = config.get("maxDetectorLength", 2000);
 
@@ -259,6 +292,14 @@ public class TCConfig {
         config.setHeader("allowNetherTeleport", "\nWhether trains can be teleported to the nether (or back) when rails are laid close to the portals");
         allowNetherTeleport = config.get("allowNetherTeleport", true);
 
+        config.setHeader("pathFindingHeuristic", "\nWhether the straight-line distance to a destination is used to speed up route finding");
+        config.addHeader("pathFindingHeuristic", "This can make trains pick a longer route when tracks lead through portals, so it is disabled by default");
+        pathFindingHeuristic = config.get("pathFindingHeuristic", false);
+
+        config.setHeader("pathFindingMaxProcessingPerTick", "\nThe maximum time in milliseconds spent discovering routes between destinations every tick");
+        config.addHeader("pathFindingMaxProcessingPerTick", "Lower values reduce server lag after a reroute, but it takes longer before the new routes can be used");
+        pathFindingMaxProcessingPerTick = MathUtil.clamp(config.get("pathFindingMaxProcessingPerTick", 30), 1, 50);
+
         config.setHeader("collisionReEnterDelay", "\nThe delay (in ticks) between ejecting and re-entering by collision (e.g. mobs auto-entering carts)");
         collisionReEnterDelay = config.get("collisionReEnterDelay", collisionReEnterDelay);
 
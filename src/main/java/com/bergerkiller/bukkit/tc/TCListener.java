@@ -17,6 +17,7 @@ import com.bergerkiller.bukkit.tc.attachments.ProfileNameModifier;
 import com.bergerkiller.bukkit.tc.attachments.old.FakePlayer;
 import com.bergerkiller.bukkit.tc.attachments.ui.AttachmentEditor;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
+import com.bergerkiller.bukkit.tc.cache.RailTypeCache;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroupStore;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
@@ -29,8 +30,10 @@ import com.bergerkiller.bukkit.tc.portals.PortalDestination;
 import com.bergerkiller.bukkit.tc.properties.CartProperties;
 import com.bergerkiller.bukkit.tc.rails.type.RailType;
 import com.bergerkiller.bukkit.tc.signactions.SignAction;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
 import com.bergerkiller.bukkit.tc.storage.OfflineGroupManager;
 import com.bergerkiller.bukkit.tc.tickets.TicketStore;
+import com.bergerkiller.bukkit.tc.utils.ChunkKeepAliveManager;
 import com.bergerkiller.bukkit.tc.utils.StoredTrainItemUtil;
 import com.bergerkiller.bukkit.tc.utils.TrackMap;
 import com.bergerkiller.generated.net.minecraft.server.EntityHandle;
@@ -125,20 +128,24 @@ public class TCListener implements Listener {
             return;
         }
 
+        // Check the chunk is not kept loaded by trains or spawn signs that recently left it
+        if (ChunkKeepAliveManager.isKeptLoaded(event.getChunk())) {
+            event.setCancelled(true);
+            return;
+        }
+
         // Check no trains are keeping the chunk loaded
         synchronized (this.expectUnload) {
             this.expectUnload.clear();
 
             long chunkCoordLong = MathUtil.longHashToLong(event.getChunk().getX(), event.getChunk().getZ());
             World chunkWorld = event.getWorld();
-            for (MinecartGroup mg : MinecartGroup.getGroups()) {
-                if (mg.isInChunk(chunkWorld, chunkCoordLong)) {
-                    if (mg.canUnload()) {
-                        this.expectUnload.add(mg);
-                    } else {
-                        event.setCancelled(true);
-                        return;
-                    }
+            for (MinecartGroup mg : new ArrayList<MinecartGroup>(MinecartGroup.getGroupsNearChunk(chunkWorld, chunkCoordLong))) {
+                if (mg.canUnload()) {
+                    this.expectUnload.add(mg);
+                } else {
+                    event.setCancelled(true);
+                    return;
                 }
             }
 
@@ -178,11 +185,13 @@ public class TCListener implements Listener {
         }
         OfflineGroupManager.unloadChunk(event.getChunk());
         OfflineGroupManager.lastUnloadChunk = null;
+        RailTypeCache.unloadChunk(event.getChunk());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onChunkLoad(ChunkLoadEvent event) {
         OfflineGroupManager.loadChunk(event.getChunk());
+        MutexZoneCache.loadChunk(event.getChunk());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -198,6 +207,8 @@ public class TCListener implements Listener {
                 group.unload();
             }
         }
+        RailTypeCache.unloadWorld(event.getWorld());
+        RailSignCache.unloadWorld(event.getWorld());
     }
 
     @EventHandler(priority = EventPriority.NORMAL)
@@ -271,6 +282,9 @@ public class TCListener implements Listener {
             event.setCancelled(true);
             return;
         }
+        if (!member.isUnloaded()) {
+            member.getGroup().wakeUp();
+        }
 
         CartProperties prop = member.getProperties();
 
@@ -362,6 +376,9 @@ public class TCListener implements Listener {
         if (mm == null) {
             return;
         }
+        if (!mm.isUnloaded()) {
+            mm.getGroup().wakeUp();
+        }
         Entity attacker = event.getAttacker();
         if (attacker instanceof Projectile) {
             attacker = (Entity) ((Projectile) attacker).getShooter();
@@ -388,6 +405,9 @@ public class TCListener implements Listener {
         try {
             MinecartMember<?> member = MinecartMemberStore.getFromEntity(event.getVehicle());
             if (member != null) {
+                if (!member.isUnloaded()) {
+                    member.getGroup().wakeUp();
+                }
                 event.setCancelled(!member.onEntityCollision(event.getEntity()));
             }
         } catch (Throwable t) {
@@ -749,6 +769,12 @@ public class TCListener implements Listener {
         if (!(event.getRightClicked() instanceof Minecart)) {
             return;
         }
+
+        // Wake up suspended trains that are interacted with
+        MinecartMember<?> clickedMember = MinecartMemberStore.getFromEntity(event.getRightClicked());
+        if (clickedMember != null && !clickedMember.isUnloaded()) {
+            clickedMember.getGroup().wakeUp();
+        }
         
         // Check that we are not spam-clicking (for block placement, that is!)
         Long lastHitTime = lastHitTimes.get(event.getPlayer());
@@ -800,8 +826,11 @@ public class TCListener implements Listener {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
+        RailTypeCache.invalidate(event.getBlock());
+        MinecartGroupStore.wakeUpNear(event.getBlock());
         if (MaterialUtil.ISSIGN.get(event.getBlock())) {
             SignAction.handleDestroy(new SignActionEvent(event.getBlock()));
+            invalidateRailSigns(event.getBlock());
         } else if (MaterialUtil.ISRAILS.get(event.getBlock())) {
             onRailsBreak(event.getBlock());
         }
@@ -812,6 +841,11 @@ public class TCListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
+        RailTypeCache.invalidate(event.getBlockPlaced());
+        MinecartGroupStore.wakeUpNear(event.getBlockPlaced());
+        if (MaterialUtil.ISSIGN.get(event.getBlockPlaced())) {
+            invalidateRailSigns(event.getBlockPlaced());
+        }
         RailType railType = RailType.getType(event.getBlockPlaced());
         if (railType != RailType.NONE) {
             final Block placed = event.getBlockPlaced();
@@ -833,6 +867,7 @@ public class TCListener implements Listener {
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onBlockPhysics(BlockPhysicsEvent event) {
         MinecartGroupStore.notifyPhysicsChange();
+        MinecartGroupStore.wakeUpNear(event.getBlock());
         RailType railType = RailType.getType(event.getBlock());
         if (railType != RailType.NONE) {
             // First check that the rails are supported as they are
@@ -854,6 +889,7 @@ public class TCListener implements Listener {
             if (!Util.isSignSupported(event.getBlock())) {
                 // Sign is no longer supported - clear all sign actions
                 SignAction.handleDestroy(new SignActionEvent(event.getBlock()));
+                invalidateRailSigns(event.getBlock());
             }
         }
     }
@@ -864,9 +900,9 @@ public class TCListener implements Listener {
             return;
         }
 
-        // Reset cache to make sure all signs are recomputed later, after the sign was made
+        // Invalidate cache to make sure the signs are recomputed later, after the sign was made
         // Doing it here, in the most generic case, so that custom addon signs are also refreshed
-        RailSignCache.reset();
+        invalidateRailSigns(event.getBlock());
 
         SignAction.handleBuild(event);
         if (event.isCancelled()) {
@@ -935,6 +971,21 @@ public class TCListener implements Listener {
         }
     }
 
+    /**
+     * Invalidates the cached signs of rails near a sign that is placed, broken or changed.
+     * The block is still there while these events fire, so this is done again the next tick.
+     * 
+     * @param signBlock
+     */
+    private static void invalidateRailSigns(final Block signBlock) {
+        RailSignCache.invalidate(signBlock);
+        CommonUtil.nextTick(new Runnable() {
+            public void run() {
+                RailSignCache.invalidate(signBlock);
+            }
+        });
+    }
+
     /**
      * Called when a rails block is being broken
      *
@@ -947,5 +998,7 @@ public class TCListener implements Listener {
         }
         // Remove path node from path finding
         PathNode.remove(railsBlock);
+        RailTypeCache.invalidate(railsBlock);
+        MinecartGroupStore.wakeUpNear(railsBlock);
     }
 }
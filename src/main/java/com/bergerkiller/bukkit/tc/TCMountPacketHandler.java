@@ -2,10 +2,10 @@ package com.bergerkiller.bukkit.tc;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.entity.Player;
 
@@ -23,10 +23,14 @@ import com.bergerkiller.generated.net.minecraft.server.PacketPlayOutMountHandle;
 
 /**
  * Does a whole lot of tracking to send entity mount (or attach on older versions) packets at the right time,
- * after the entities referenced in them have been spawned.
+ * after the entities referenced in them have been spawned.<br>
+ * <br>
+ * Packets are monitored on the network threads of the players they are sent to. The handlers of all players
+ * are stored in a concurrent map, so that looking up a handler never waits for other players. Each handler
+ * guards its own state, which is only ever changed by the network thread of that player and the main thread.
  */
 public class TCMountPacketHandler implements PacketMonitor {
-    private final Map<Player, PlayerHandler> _players = new IdentityHashMap<Player, PlayerHandler>();
+    private final Map<Player, PlayerHandler> _players = new ConcurrentHashMap<Player, PlayerHandler>();
     public static PacketType[] MONITORED_TYPES = {
             PacketType.OUT_ENTITY_SPAWN,
             PacketType.OUT_ENTITY_SPAWN_LIVING,
@@ -35,7 +39,7 @@ public class TCMountPacketHandler implements PacketMonitor {
             PacketType.OUT_RESPAWN
     };
 
-    public synchronized void cleanup() {
+    public void cleanup() {
         Iterator<Player> iter = this._players.keySet().iterator();
         while (iter.hasNext()) {
             if (!iter.next().isOnline()) {
@@ -44,19 +48,27 @@ public class TCMountPacketHandler implements PacketMonitor {
         }
     }
 
-    public synchronized void remove(Player player) {
-        this._players.remove(player);
+    public void remove(Player player) {
+        PlayerHandler handler = this._players.get(player);
+        if (handler != null && handler.getPlayer() == player) {
+            this._players.remove(player, handler);
+        }
     }
 
-    public synchronized PlayerHandler get(Player player) {
+    public PlayerHandler get(Player player) {
+        // Players that log in again are equal to their old Player instance, so check the instance as well
         PlayerHandler handler = this._players.get(player);
-        if (handler == null) {
-            handler = new PlayerHandler(player);
-            if (player.isOnline()) {
-                this._players.put(player, handler);
-            }
+        if (handler != null && handler.getPlayer() == player) {
+            return handler;
+        }
+        handler = new PlayerHandler(player);
+        if (!player.isOnline()) {
+            return handler;
         }
-        return handler;
+
+        // Another thread may have stored a handler for this player in the meantime, use that one if so
+        return this._players.merge(player, handler,
+                (oldHandler, newHandler) -> (oldHandler.getPlayer() == player) ? oldHandler : newHandler);
     }
 
     @Override
@@ -156,11 +168,15 @@ public class TCMountPacketHandler implements PacketMonitor {
             } else if (type == PacketType.OUT_ENTITY_DESTROY) {
                 despawn(packet.read(PacketType.OUT_ENTITY_DESTROY.entityIds));
             } else if (type == PacketType.OUT_RESPAWN) {
-                this._map.clear();
-                this._checkTasks.clear();
+                reset();
             }
         }
 
+        private synchronized void reset() {
+            this._map.clear();
+            this._checkTasks.clear();
+        }
+
         // called before running a task to handle pre-spawn dependencies
         // adds the pending task to the metadata of the entity, if the entity is not yet spawned
         private boolean require(PendingTask task, int entityId) {
@@ -28,10 +28,12 @@ import com.bergerkiller.bukkit.tc.properties.TrainProperties;
 import com.bergerkiller.bukkit.tc.signactions.SignAction;
 import com.bergerkiller.bukkit.tc.signactions.SignActionDetector;
 import com.bergerkiller.bukkit.tc.signactions.SignActionSpawn;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
 import com.bergerkiller.bukkit.tc.signactions.spawner.SpawnSignManager;
 import com.bergerkiller.bukkit.tc.statements.Statement;
 import com.bergerkiller.bukkit.tc.storage.OfflineGroupManager;
 import com.bergerkiller.bukkit.tc.tickets.TicketStore;
+import com.bergerkiller.bukkit.tc.utils.ChunkKeepAliveManager;
 import com.bergerkiller.mountiplex.conversion.Conversion;
 
 import org.bukkit.Material;
@@ -265,6 +267,7 @@ public class TrainCarts extends PluginBase {
                 break;
             case "Essentials":
                 TCConfig.EssentialsEnabled = enabled;
+                SignAction.invalidateActionCache(); // Ticket signs only match with Essentials enabled
                 break;
         }
     }
@@ -334,6 +337,9 @@ public class TrainCarts extends PluginBase {
         //Load detector regions
         DetectorRegion.init(getDataFolder() + File.separator + "detectorregions.dat");
 
+        //Load mutex zones
+        MutexZoneCache.init(getDataFolder() + File.separator + "mutexzones.dat");
+
         //Load detector sign locations
         SignActionDetector.INSTANCE.init(getDataFolder() + File.separator + "detectorsigns.dat");
 
@@ -413,6 +419,9 @@ public class TrainCarts extends PluginBase {
         //Save detector regions
         DetectorRegion.save(autosave, getDataFolder() + File.separator + "detectorregions.dat");
 
+        //Save mutex zones
+        MutexZoneCache.save(autosave, getDataFolder() + File.separator + "mutexzones.dat");
+
         //Save attachment models
         attachmentModels.save(autosave);
 
@@ -481,6 +490,7 @@ public class TrainCarts extends PluginBase {
 
         // Deinit classes
         PathNode.deinit();
+        MutexZoneCache.deinit();
         ArrivalSigns.deinit();
         SignActionSpawn.deinit();
         Statement.deinit();
@@ -491,6 +501,7 @@ public class TrainCarts extends PluginBase {
         RailTypeCache.reset();
         RailSignCache.reset();
         RailMemberCache.reset();
+        ChunkKeepAliveManager.deinit();
     }
 
     public boolean command(CommandSender sender, String cmd, String[] args) {
@@ -554,6 +565,9 @@ public class TrainCarts extends PluginBase {
 
             // For all Minecart that were not ticked, tick them ourselves
             MinecartGroupStore.doFixedTick();
+
+            // Unload chunks trains no longer keep loaded
+            ChunkKeepAliveManager.update();
         }
     }
 }
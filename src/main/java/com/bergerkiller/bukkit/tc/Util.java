@@ -1048,6 +1048,30 @@ public class Util {
         ChunkHandle.fromBukkit(chunk).markDirty();
     }
 
+    /**
+     * Packs the x/y/z coordinates of a block into a single long value, suitable as key
+     * in a LongHashMap. The x and z coordinates use 26 bits, the y coordinate uses 12 bits.
+     *
+     * @param x - coordinate of the block
+     * @param y - coordinate of the block
+     * @param z - coordinate of the block
+     * @return packed block coordinates
+     */
+    public static long packBlockPosition(int x, int y, int z) {
+        return (((long) x & 0x3FFFFFFL) << 38) | (((long) z & 0x3FFFFFFL) << 12) | ((long) y & 0xFFFL);
+    }
+
+    /**
+     * Packs the coordinates of a block into a single long value.
+     * See {@link #packBlockPosition(int, int, int)}.
+     *
+     * @param block
+     * @return packed block coordinates
+     */
+    public static long packBlockPosition(Block block) {
+        return packBlockPosition(block.getX(), block.getY(), block.getZ());
+    }
+
     /**
      * Attempts to find the most appropriate junction for a BlockFace wind direction.
      * This is used when switcher signs have to switch rails based on wind directions, but
@@ -14,10 +14,12 @@ import com.bergerkiller.bukkit.common.math.Quaternion;
 import com.bergerkiller.bukkit.common.math.Vector3;
 import com.bergerkiller.bukkit.common.protocol.CommonPacket;
 import com.bergerkiller.bukkit.common.protocol.PacketType;
+import com.bergerkiller.bukkit.common.utils.CommonUtil;
 import com.bergerkiller.bukkit.common.utils.EntityUtil;
 import com.bergerkiller.bukkit.common.utils.MathUtil;
 import com.bergerkiller.bukkit.common.utils.PacketUtil;
 import com.bergerkiller.bukkit.common.wrappers.DataWatcher;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
 import com.bergerkiller.bukkit.tc.controller.MinecartMemberNetwork;
@@ -55,6 +57,10 @@ public class VirtualEntity {
     private boolean cancelUnmountLogic = false;
     private boolean useParentMetadata = false;
     private final ArrayList<Player> viewers = new ArrayList<Player>();
+    private final ArrayList<Player> fullRateViewers = new ArrayList<Player>();
+    private final ArrayList<Player> reducedRateViewers = new ArrayList<Player>();
+    private boolean reducedRateChanged = false;
+    private int reducedRateSyncTick = 0;
     private Vector yawPitchRoll = new Vector(0.0, 0.0, 0.0);
 
     public VirtualEntity(MinecartMemberNetwork controller) {
@@ -240,6 +246,9 @@ public class VirtualEntity {
             this.destroy(viewer);
         }
         this.viewers.add(viewer);
+        if (!this.reducedRateViewers.contains(viewer)) {
+            this.fullRateViewers.add(viewer);
+        }
 
         //motX = motY = motZ = 0.0;
 
@@ -347,6 +356,28 @@ public class VirtualEntity {
         }
     }
 
+    /**
+     * Sets whether relative movement is sent to a viewer at a reduced rate. Instead of every
+     * change in position and rotation, the viewer is sent the absolute position every
+     * {@link TCConfig#attachmentReducedDetailInterval} ticks.
+     * 
+     * @param viewer to set it for
+     * @param reduced whether to reduce the rate
+     */
+    public void setReducedRate(Player viewer, boolean reduced) {
+        if (reduced) {
+            if (this.fullRateViewers.remove(viewer)) {
+                this.reducedRateViewers.add(viewer);
+            }
+        } else if (this.reducedRateViewers.remove(viewer)) {
+            this.fullRateViewers.add(viewer);
+
+            // Relative movement is applied to the position the viewer last saw, which must be the synchronized one
+            PacketUtil.sendPacket(viewer, PacketPlayOutEntityTeleportHandle.createNew(this.entityId,
+                    this.syncAbsX, this.syncAbsY, this.syncAbsZ, this.syncYaw, this.syncPitch, false));
+        }
+    }
+
     public void syncPosition(boolean absolute) {
         if (this.viewers.isEmpty()) {
             // No viewers. Assign live to sync right away.
@@ -398,6 +429,8 @@ public class VirtualEntity {
             broadcast(PacketPlayOutEntityTeleportHandle.createNew(this.entityId, this.liveAbsX, this.liveAbsY, this.liveAbsZ, this.liveYaw, this.livePitch, false));
             refreshSyncPos();
             refreshHeadRotation();
+            this.reducedRateChanged = false;
+            this.reducedRateSyncTick = CommonUtil.getServerTicks();
             return;
         }
 
@@ -439,7 +472,7 @@ public class VirtualEntity {
             this.syncAbsX += packet.getDeltaX();
             this.syncAbsY += packet.getDeltaY();
             this.syncAbsZ += packet.getDeltaZ();
-            broadcast(packet);
+            broadcastMovement(packet);
         } else if (moved) {
             // Only position changed
             PacketPlayOutRelEntityMoveHandle packet = PacketPlayOutRelEntityMoveHandle.createNew(
@@ -450,7 +483,7 @@ public class VirtualEntity {
             this.syncAbsX += packet.getDeltaX();
             this.syncAbsY += packet.getDeltaY();
             this.syncAbsZ += packet.getDeltaZ();
-            broadcast(packet);
+            broadcastMovement(packet);
         } else if (rotated) {
             if (this.syncMode == SyncMode.SEAT && rotatedNow) {
                 // Send a very small movement change to correct rotation in a pulse
@@ -466,7 +499,7 @@ public class VirtualEntity {
                 this.syncAbsX += packet.getDeltaX();
                 this.syncAbsY += packet.getDeltaY();
                 this.syncAbsZ += packet.getDeltaZ();
-                broadcast(packet);
+                broadcastMovement(packet);
             } else {
                 // Only rotation changed
                 PacketPlayOutEntityLookHandle packet = PacketPlayOutEntityLookHandle.createNew(
@@ -477,7 +510,29 @@ public class VirtualEntity {
 
                 this.syncYaw = this.liveYaw;
                 this.syncPitch = this.livePitch;
-                broadcast(packet);
+                broadcastMovement(packet);
+            }
+        }
+
+        this.syncReducedRate();
+    }
+
+    // Sends the synchronized position to viewers at a reduced rate, when it changed
+    private void syncReducedRate() {
+        if (!this.reducedRateChanged) {
+            return;
+        }
+        int serverTicks = CommonUtil.getServerTicks();
+        if ((serverTicks - this.reducedRateSyncTick) < TCConfig.attachmentReducedDetailInterval) {
+            return;
+        }
+        this.reducedRateChanged = false;
+        this.reducedRateSyncTick = serverTicks;
+        if (!this.reducedRateViewers.isEmpty()) {
+            PacketPlayOutEntityTeleportHandle packet = PacketPlayOutEntityTeleportHandle.createNew(this.entityId,
+                    this.syncAbsX, this.syncAbsY, this.syncAbsZ, this.syncYaw, this.syncPitch, false);
+            for (Player viewer : this.reducedRateViewers) {
+                PacketUtil.sendPacket(viewer, packet);
             }
         }
     }
@@ -517,6 +572,10 @@ public class VirtualEntity {
 
     public void destroy(Player viewer) {
         this.viewers.remove(viewer);
+        this.fullRateViewers.remove(viewer);
+        if (!this.cancelUnmountLogic) {
+            this.reducedRateViewers.remove(viewer); // Kept when respawning
+        }
         if (this.syncVel > 0.0) {
             PacketUtil.sendPacket(viewer, PacketType.OUT_ENTITY_VELOCITY.newInstance(this.entityId, new Vector()));
         }
@@ -539,6 +598,16 @@ public class VirtualEntity {
         }
     }
 
+    // Sends relative movement to the viewers that receive it at the full rate
+    private void broadcastMovement(PacketHandle packet) {
+        for (Player viewer : this.fullRateViewers) {
+            PacketUtil.sendPacket(viewer, packet);
+        }
+        if (!this.reducedRateViewers.isEmpty()) {
+            this.reducedRateChanged = true;
+        }
+    }
+
     private DataWatcher getUsedMeta() {
         return this.useParentMetadata ? this.controller.getEntity().getMetaData() : this.metaData;
     }
@@ -0,0 +1,139 @@
+package com.bergerkiller.bukkit.tc.attachments.control;
+
+import java.util.ArrayList;
+
+import com.bergerkiller.bukkit.common.math.Matrix4x4;
+import com.bergerkiller.bukkit.common.wrappers.IntHashMap;
+
+/**
+ * Stores all the attachments of a minecart in flat arrays, with every attachment stored before its children.
+ * Updating all attachments is done by iterating the arrays, instead of recursing over the children
+ * of every attachment. Attachments are also indexed by the entity id players can interact with,
+ * so that the attachment a player clicked on can be found quickly.<br>
+ * <br>
+ * A tree does not change after it is created, which makes it safe to look up attachments from
+ * another thread. A new tree must be created when the attachments change.
+ */
+public final class AttachmentTree {
+    public static final AttachmentTree EMPTY = new AttachmentTree(null);
+    private final CartAttachment[] attachments;
+    private final int[] parents;
+    private final IntHashMap<CartAttachment> byEntityId = new IntHashMap<CartAttachment>();
+
+    /**
+     * Creates a new tree containing all the attachments of a root attachment
+     *
+     * @param root attachment, null to create an empty tree
+     */
+    public AttachmentTree(CartAttachment root) {
+        ArrayList<CartAttachment> attachmentsList = new ArrayList<CartAttachment>();
+        ArrayList<Integer> parentsList = new ArrayList<Integer>();
+        if (root != null) {
+            add(attachmentsList, parentsList, root, -1);
+        }
+
+        this.attachments = attachmentsList.toArray(new CartAttachment[attachmentsList.size()]);
+        this.parents = new int[parentsList.size()];
+        for (int i = 0; i < this.parents.length; i++) {
+            this.parents[i] = parentsList.get(i).intValue();
+        }
+        for (CartAttachment attachment : this.attachments) {
+            int entityId = attachment.getMountEntityId();
+            if (entityId != -1 && attachment.containsEntityId(entityId)) {
+                this.byEntityId.put(entityId, attachment);
+            }
+        }
+    }
+
+    private static void add(ArrayList<CartAttachment> attachments, ArrayList<Integer> parents, CartAttachment attachment, int parentIndex) {
+        int index = attachments.size();
+        attachments.add(attachment);
+        parents.add(parentIndex);
+        for (CartAttachment child : attachment.children) {
+            add(attachments, parents, child, index);
+        }
+    }
+
+    /**
+     * Gets the number of attachments in this tree
+     *
+     * @return attachment count
+     */
+    public int size() {
+        return this.attachments.length;
+    }
+
+    /**
+     * Gets an attachment in this tree. The root attachment is at index 0.
+     *
+     * @param index of the attachment
+     * @return attachment
+     */
+    public CartAttachment get(int index) {
+        return this.attachments[index];
+    }
+
+    /**
+     * Gets the index of the parent of an attachment in this tree
+     *
+     * @param index of the attachment
+     * @return parent attachment index, -1 for the root attachment
+     */
+    public int getParentIndex(int index) {
+        return this.parents[index];
+    }
+
+    /**
+     * Finds the attachment that uses a particular entity id
+     *
+     * @param entityId to find
+     * @return attachment using the entity id, null if not found
+     */
+    public CartAttachment findAttachment(int entityId) {
+        // Attachments can change the entity ids they use after the tree was created, so check it is still used
+        CartAttachment attachment = this.byEntityId.get(entityId);
+        if (attachment != null && attachment.containsEntityId(entityId)) {
+            return attachment;
+        }
+
+        // Attachments can use entity ids other than the one that is mounted
+        for (CartAttachment other : this.attachments) {
+            if (other.containsEntityId(entityId)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Updates the transforms of all attachments, see {@link CartAttachment#updatePositions(CartAttachment, Matrix4x4)}
+     *
+     * @param transform of the minecart, relative to which the root attachment is positioned
+     */
+    public void updatePositions(Matrix4x4 transform) {
+        for (int i = 0; i < this.attachments.length; i++) {
+            int parentIndex = this.parents[i];
+            CartAttachment.updatePosition(this.attachments[i], (parentIndex == -1) ? transform : this.attachments[parentIndex].transform);
+        }
+    }
+
+    /**
+     * Ticks all attachments, parents before their children, see {@link CartAttachment#onTick()}
+     */
+    public void performTick() {
+        for (CartAttachment attachment : this.attachments) {
+            attachment.onTick();
+        }
+    }
+
+    /**
+     * Moves all attachments, parents before their children, see {@link CartAttachment#onMove(boolean)}
+     *
+     * @param absolute whether to send absolute position updates
+     */
+    public void performMovement(boolean absolute) {
+        for (CartAttachment attachment : this.attachments) {
+            attachment.onMove(absolute);
+        }
+    }
+}
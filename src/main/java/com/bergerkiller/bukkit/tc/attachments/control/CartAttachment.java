@@ -21,6 +21,7 @@ public abstract class CartAttachment {
     protected ConfigurationNode config = null;
     public Matrix4x4 last_transform;
     public Matrix4x4 transform;
+    private Matrix4x4 parent_transform;
     public Matrix4x4 local_transform;
     public Vector3 position;
     public Vector3 rotation;
@@ -47,6 +48,7 @@ public abstract class CartAttachment {
     public void onDetached() {
         this.last_transform = null;
         this.transform = null;
+        this.parent_transform = null;
     }
 
     /**
@@ -83,6 +85,16 @@ public abstract class CartAttachment {
 
     public abstract void makeHidden(Player viewer);
 
+    /**
+     * Sets whether the movement of this attachment is sent to a viewer at a reduced rate.
+     * This is used for viewers that are far away from the minecart.
+     * 
+     * @param viewer to set it for
+     * @param reduced whether to reduce the rate
+     */
+    public void setReducedRate(Player viewer, boolean reduced) {
+    }
+
     /**
      * Called right after the position transformation matrix is updated.
      * Relative positioning of the attachment should happen here.
@@ -95,56 +107,49 @@ public abstract class CartAttachment {
     
     public abstract void onMove(boolean absolute);
 
-    public static CartAttachment findAttachment(CartAttachment root, int entityId) {
-        if (root.containsEntityId(entityId)) {
-            return root;
-        } else {
-            for (CartAttachment child : root.children) {
-                CartAttachment att = findAttachment(child, entityId);
-                if (att != null) {
-                    return att;
-                }
-            }
-            return null;
-        }
-    }
-
-    public static void performTick(CartAttachment attachment) {
-        attachment.onTick();
-        for (CartAttachment child : attachment.children) {
-            performTick(child);
-        }
-    }
-
-    public static void performMovement(CartAttachment attachment, boolean absolute) {
-        attachment.onMove(absolute);
+    public static void updatePositions(CartAttachment attachment, Matrix4x4 transform) {
+        updatePosition(attachment, transform);
         for (CartAttachment child : attachment.children) {
-            performMovement(child, absolute);
+            updatePositions(child, attachment.transform);
         }
     }
 
-    public static void updatePositions(CartAttachment attachment, Matrix4x4 transform) {
-        attachment.last_transform = attachment.transform;
-
-        // Update the transform based on the anchor setting
+    /**
+     * Updates the transform of a single attachment, without updating its children
+     * 
+     * @param attachment to update
+     * @param transform of the parent attachment
+     */
+    public static void updatePosition(CartAttachment attachment, Matrix4x4 transform) {
+        // Select the transform to position relative to based on the anchor setting
+        Matrix4x4 parent_transform;
         switch (attachment.anchor) {
         case FRONT_WHEEL:
-            attachment.transform = attachment.getController().getMember().getWheels().front().getAbsoluteTransform();
+            parent_transform = attachment.getController().getMember().getWheels().front().getAbsoluteTransform();
             break;
         case BACK_WHEEL:
-            attachment.transform = attachment.getController().getMember().getWheels().back().getAbsoluteTransform();
+            parent_transform = attachment.getController().getMember().getWheels().back().getAbsoluteTransform();
             break;
         default:
-            attachment.transform = transform.clone();
+            parent_transform = transform;
             break;
         }
 
-        attachment.onPositionUpdate();
-        if (attachment.last_transform == null) {
+        if (attachment.transform == null) {
+            // First update, the transforms are created once and re-used from then on
+            attachment.parent_transform = parent_transform.clone();
+            attachment.transform = parent_transform.clone();
+            attachment.onPositionUpdate();
             attachment.last_transform = attachment.transform.clone();
-        }
-        for (CartAttachment child : attachment.children) {
-            updatePositions(child, attachment.transform);
+        } else if (!attachment.parent_transform.equals(parent_transform) || !attachment.last_transform.equals(attachment.transform)) {
+            // Swap the transforms, and calculate the new transform in place of the one before the last
+            // When the position stops changing this is done once more, so that last and current transform are equal
+            Matrix4x4 last_transform = attachment.transform;
+            attachment.transform = attachment.last_transform;
+            attachment.last_transform = last_transform;
+            attachment.parent_transform.set(parent_transform);
+            attachment.transform.set(parent_transform);
+            attachment.onPositionUpdate();
         }
     }
 
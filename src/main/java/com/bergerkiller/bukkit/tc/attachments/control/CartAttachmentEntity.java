@@ -88,6 +88,14 @@ public class CartAttachmentEntity extends CartAttachment {
         entity.destroy(viewer);
     }
 
+    @Override
+    public void setReducedRate(Player viewer, boolean reduced) {
+        entity.setReducedRate(viewer, reduced);
+        if (actual != null) {
+            actual.setReducedRate(viewer, reduced);
+        }
+    }
+
     @Override
     public void onPositionUpdate() {
         super.onPositionUpdate();
@@ -82,6 +82,11 @@ public class CartAttachmentItem extends CartAttachment {
         entity.destroy(viewer);
     }
 
+    @Override
+    public void setReducedRate(Player viewer, boolean reduced) {
+        entity.setReducedRate(viewer, reduced);
+    }
+
     @Override
     public void onPositionUpdate() {
         // Switch to old logic for debugging the pivot point changes in 1.12.2-v3
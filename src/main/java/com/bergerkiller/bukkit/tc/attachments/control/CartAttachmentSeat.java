@@ -218,6 +218,13 @@ public class CartAttachmentSeat extends CartAttachment {
         }
     }
 
+    @Override
+    public void setReducedRate(Player viewer, boolean reduced) {
+        if (this._fakeMount != null) {
+            this._fakeMount.setReducedRate(viewer, reduced);
+        }
+    }
+
     @Override
     public void onMove(boolean absolute) {
         if (this._entity instanceof Player && this._fakeEntityId != -1) {
@@ -0,0 +1,24 @@
+package com.bergerkiller.bukkit.tc.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map that holds a limited number of entries, removing the least recently accessed
+ * entry when more are added. The rail caches use this as an overlay for temporary data
+ * found while path finding, so that it never ends up in the caches used by trains.
+ */
+final class BoundedCacheMap<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+    private final int maxSize;
+
+    public BoundedCacheMap(int maxSize) {
+        super(16, 0.75f, true);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return this.size() > this.maxSize;
+    }
+}
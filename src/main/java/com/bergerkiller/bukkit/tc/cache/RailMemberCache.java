@@ -1,48 +1,58 @@
 package com.bergerkiller.bukkit.tc.cache;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Level;
 
 import org.bukkit.block.Block;
 
 import com.bergerkiller.bukkit.common.bases.IntVector3;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
 import com.bergerkiller.bukkit.tc.TrainCarts;
+import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.ListMultimap;
 
 /**
  * Cache that tracks what rail blocks trains are occupying, allowing for quick
  * retrieval of train information that are on a particular rails block. This is used
  * for wait distance functionality and when spawning trains. It is also used when
  * a sign is activated by redstone, and the train that is on the rail coupled by it
- * needs to be found.
+ * needs to be found.<br>
+ * <br>
+ * Members are indexed both ways: by the (packed) coordinates of the rail block, and
+ * by member to the rail blocks it occupies. This makes removing a member only as expensive
+ * as the number of rail blocks it occupies.
  */
 public class RailMemberCache {
-    private static final ListMultimap<Block, MinecartMember<?>> cache = LinkedListMultimap.create(10000);
+    private static final Map<UUID, LongHashMap<List<MinecartMember<?>>>> cache = new HashMap<UUID, LongHashMap<List<MinecartMember<?>>>>();
+    private static final Map<MinecartMember<?>, List<Block>> memberBlocks = new IdentityHashMap<MinecartMember<?>, List<Block>>();
 
     /**
      * Wipes all members stored in the cache
      */
     public static void reset() {
         cache.clear();
+        memberBlocks.clear();
     }
 
     /**
      * Finds the minecart that is on a particular rail block
-     * 
+     *
      * @param railBlock
      * @return member on this rail, null if none is on it
      */
     public static MinecartMember<?> find(Block railBlock) {
-        Collection<MinecartMember<?>> members = cache.get(railBlock);
-        if (members.isEmpty()) {
+        List<MinecartMember<?>> members = getMembers(railBlock);
+        if (members == null || members.isEmpty()) {
             return null;
         }
-        MinecartMember<?> result = members.iterator().next();
+        MinecartMember<?> result = members.get(0);
         if (result.isUnloaded()) {
             TrainCarts.plugin.log(Level.WARNING, "Purged unloaded minecart from rail cache at " + new IntVector3(railBlock));
             remove(result);
@@ -53,74 +63,106 @@ public class RailMemberCache {
 
     /**
      * Finds all minecarts traveling on a particular rail block
-     * 
+     *
      * @param railBlock
      * @return members on this rail
      */
     public static Collection<MinecartMember<?>> findAll(Block railBlock) {
-        Collection<MinecartMember<?>> members = cache.get(railBlock);
-        Iterator<MinecartMember<?>> iter = members.iterator();
-        while (iter.hasNext()) {
-            MinecartMember<?> member = iter.next();
+        List<MinecartMember<?>> members = getMembers(railBlock);
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        int index = 0;
+        while (index < members.size()) {
+            MinecartMember<?> member = members.get(index);
             if (member.isUnloaded()) {
+                // Removes the member from this list as well, so do not advance the index
                 TrainCarts.plugin.log(Level.WARNING, "Purged unloaded minecart from rail cache at " + new IntVector3(railBlock));
-                iter.remove();
                 remove(member);
-                return findAll(railBlock);
+            } else {
+                index++;
             }
         }
         return members;
     }
 
+    /**
+     * Finds all minecarts traveling on a rail block at particular coordinates.
+     * Unlike {@link #findAll(Block)}, this does not need the Block, so the blocks
+     * around a block can be checked without accessing the chunks they are in.
+     * Unloaded minecarts are not purged.
+     *
+     * @param worldUUID of the world the rail block is in
+     * @param x - coordinate of the rail block
+     * @param y - coordinate of the rail block
+     * @param z - coordinate of the rail block
+     * @return members on this rail
+     */
+    public static Collection<MinecartMember<?>> findAll(UUID worldUUID, int x, int y, int z) {
+        LongHashMap<List<MinecartMember<?>>> worldCache = cache.get(worldUUID);
+        if (worldCache == null) {
+            return Collections.emptyList();
+        }
+        List<MinecartMember<?>> members = worldCache.get(Util.packBlockPosition(x, y, z));
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        return members;
+    }
+
     /**
      * Removes all existant entries to a particular minecart
-     * 
+     *
      * @param member value to remove
      */
     public static void remove(MinecartMember<?> member) {
-        Iterator<MinecartMember<?>> iter = cache.values().iterator();
-        while (iter.hasNext()) {
-            if (iter.next() == member) {
-                iter.remove();
+        List<Block> blocks = memberBlocks.remove(member);
+        if (blocks != null) {
+            for (Block railBlock : blocks) {
+                removeFromBlock(railBlock, member);
             }
         }
     }
 
     /**
      * Removes a minecart from being bound to a particular rail block
-     * 
+     *
      * @param railsBlock
      * @param member
      */
     public static void removeBlock(Block railBlock, MinecartMember<?> member) {
-        cache.remove(railBlock, member);
+        if (removeFromBlock(railBlock, member)) {
+            removeMemberBlock(member, railBlock);
+        }
     }
 
     /**
      * Adds a minecart, binding it to a particular rail block
-     * 
+     *
      * @param railsBlock
      * @param member
      */
     public static void addBlock(Block railBlock, MinecartMember<?> member) {
-        cache.put(railBlock, member);
+        getOrCreateMembers(railBlock).add(member);
+        addMemberBlock(member, railBlock);
     }
 
     /**
      * Changes the minecart member that is on a particular rails block.
      * If old and new member are the same, all this does is verify that the member is added.
-     * 
+     *
      * @param railBlock
      * @param oldMember
      * @param newMember
      */
     public static void changeMember(Block railBlock, MinecartMember<?> oldMember, MinecartMember<?> newMember) {
-        List<MinecartMember<?>> members = cache.get(railBlock);
-        ListIterator<MinecartMember<?>> iter = members.listIterator();
-        while (iter.hasNext()) {
-            if (iter.next() == oldMember) {
+        List<MinecartMember<?>> members = getOrCreateMembers(railBlock);
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i) == oldMember) {
                 if (oldMember != newMember) {
-                    iter.set(newMember);
+                    members.set(i, newMember);
+                    removeMemberBlock(oldMember, railBlock);
+                    addMemberBlock(newMember, railBlock);
                 }
                 return;
             }
@@ -128,5 +170,69 @@ public class RailMemberCache {
 
         // Not yet in it. Add it.
         members.add(newMember);
+        addMemberBlock(newMember, railBlock);
+    }
+
+    private static List<MinecartMember<?>> getMembers(Block railBlock) {
+        LongHashMap<List<MinecartMember<?>>> worldCache = cache.get(railBlock.getWorld().getUID());
+        if (worldCache == null) {
+            return null;
+        }
+        return worldCache.get(Util.packBlockPosition(railBlock));
+    }
+
+    private static List<MinecartMember<?>> getOrCreateMembers(Block railBlock) {
+        UUID worldUUID = railBlock.getWorld().getUID();
+        LongHashMap<List<MinecartMember<?>>> worldCache = cache.get(worldUUID);
+        if (worldCache == null) {
+            worldCache = new LongHashMap<List<MinecartMember<?>>>();
+            cache.put(worldUUID, worldCache);
+        }
+        long key = Util.packBlockPosition(railBlock);
+        List<MinecartMember<?>> members = worldCache.get(key);
+        if (members == null) {
+            members = new ArrayList<MinecartMember<?>>(1);
+            worldCache.put(key, members);
+        }
+        return members;
+    }
+
+    // Removes a single entry of a member from the members on a block, does not update memberBlocks
+    private static boolean removeFromBlock(Block railBlock, MinecartMember<?> member) {
+        LongHashMap<List<MinecartMember<?>>> worldCache = cache.get(railBlock.getWorld().getUID());
+        if (worldCache == null) {
+            return false;
+        }
+        long key = Util.packBlockPosition(railBlock);
+        List<MinecartMember<?>> members = worldCache.get(key);
+        if (members == null) {
+            return false;
+        }
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i) == member) {
+                members.remove(i);
+                if (members.isEmpty()) {
+                    worldCache.remove(key);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addMemberBlock(MinecartMember<?> member, Block railBlock) {
+        List<Block> blocks = memberBlocks.get(member);
+        if (blocks == null) {
+            blocks = new ArrayList<Block>(4);
+            memberBlocks.put(member, blocks);
+        }
+        blocks.add(railBlock);
+    }
+
+    private static void removeMemberBlock(MinecartMember<?> member, Block railBlock) {
+        List<Block> blocks = memberBlocks.get(member);
+        if (blocks != null && blocks.remove(railBlock) && blocks.isEmpty()) {
+            memberBlocks.remove(member);
+        }
     }
 }
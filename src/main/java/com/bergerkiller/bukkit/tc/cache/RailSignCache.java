@@ -1,12 +1,17 @@
 package com.bergerkiller.bukkit.tc.cache;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.Sign;
@@ -16,21 +21,48 @@ import static com.bergerkiller.bukkit.common.utils.MaterialUtil.getMaterial;
 import com.bergerkiller.bukkit.common.utils.BlockUtil;
 import com.bergerkiller.bukkit.common.utils.FaceUtil;
 import com.bergerkiller.bukkit.common.utils.MaterialUtil;
+import com.bergerkiller.bukkit.common.utils.MathUtil;
 import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.common.wrappers.BlockData;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.SignActionHeader;
 import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.rails.type.RailType;
+import com.bergerkiller.bukkit.tc.signactions.SignAction;
 
 /**
- * Caches and searches for signs below rails blocks in the order in which they should be executed.
+ * Caches and searches for signs below rails blocks in the order in which they should be executed.<br>
+ * <br>
+ * Sign lists are stored per world, keyed by the packed coordinates of the rails block. They are
+ * also indexed by the x/z columns of the blocks that were searched for signs, so that placing,
+ * breaking or changing a sign only invalidates the rails that use that column. Cached sign lists
+ * are verified again when first accessed in a new cleanup cycle, to catch signs that were removed
+ * without firing an event.
  */
 public class RailSignCache {
     private static final Material WALL_SIGN_TYPE = getMaterial("LEGACY_WALL_SIGN");
     private static final Material SIGN_POST_TYPE = getMaterial("LEGACY_SIGN_POST");
     private static BlockFace[] SIGN_FACES_ORDERED = {BlockFace.UP, BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.DOWN};
     private static final TrackedSign[] EMPTY_SIGNS = new TrackedSign[0];
-    private static final HashMap<CachedRailKey, CachedRailSignList> cachedRailSigns = new HashMap<CachedRailKey, CachedRailSignList>();
+    private static final long[] EMPTY_COLUMNS = new long[0];
+    private static final int OVERLAY_MAX_SIZE = 4096;
+    private static final int EXPIRE_CYCLES = 20;
+    private static final Map<UUID, WorldRailSigns> worlds = new HashMap<UUID, WorldRailSigns>();
+    private static final List<List<CachedRailSignList>> buckets = new ArrayList<List<CachedRailSignList>>(EXPIRE_CYCLES + 1);
+    private static final ArrayDeque<CachedRailSignList> overlayRailSigns = new ArrayDeque<CachedRailSignList>();
+    private static boolean overlayEnabled = false;
+    private static int cycle = 0;
+    private static World lastWorld = null;
+    private static WorldRailSigns lastWorldRailSigns = null;
     private static final List<Block> signListCache = new ArrayList<Block>();
+    private static long[] columnKeyCache = new long[4];
+    private static int columnKeyCount = 0;
+
+    static {
+        for (int i = 0; i <= EXPIRE_CYCLES; i++) {
+            buckets.add(new ArrayList<CachedRailSignList>());
+        }
+    }
 
     /**
      * Gets all the cached rail signs available at a particular block position
@@ -40,55 +72,104 @@ public class RailSignCache {
      * @return array of valid rails at a rails block position
      */
     public static TrackedSign[] getSigns(RailType railType, Block railBlock) {
-        CachedRailKey key = new CachedRailKey(railType, railBlock);
-        CachedRailSignList cached = cachedRailSigns.get(key);
-        if (cached != null && cached.life > 0) {
-            // Verify all the signs mentioned are still there
-            boolean valid = true;
-            for (TrackedSign sign : cached.signs) {
-                if (!BlockUtil.ISSIGN.get(sign.signBlock)) {
-                    valid = false;
-                    break;
+        WorldRailSigns worldRailSigns = getWorld(railBlock.getWorld(), true);
+        long key = Util.packBlockPosition(railBlock);
+        CachedRailSignList cached = worldRailSigns.signs.get(key);
+        if (cached != null) {
+            if (cached.railType == railType && (overlayEnabled || !cached.overlay)) {
+                if (cached.cycle == cycle) {
+                    return cached.signs;
                 }
-            }
 
-            // If still valid, reset life, otherwise regenerate
-            if (valid) {
-                cached.life = 0;
-            } else {
-                cached = null;
+                // First access this cleanup cycle. Verify all the signs mentioned are still there,
+                // as signs can disappear without an event being fired for them (explosions, pistons)
+                if (isStillValid(cached)) {
+                    cached.cycle = cycle;
+                    getBucket(cycle).add(cached);
+                    return cached.signs;
+                }
             }
-        }
 
-        // Regenerate if required
-        if (cached == null) {
-            Block columnStart = key.railType.getSignColumnStart(key.railBlock);
-            BlockFace direction = key.railType.getSignColumnDirection(key.railBlock);
+            // Different rail type, an overlay entry while the overlay is disabled
+            // or signs have disappeared, regenerate
+            remove(cached);
+        }
 
-            // Compute signs. Do check that the sign search input params are correct.
-            TrackedSign[] signs = EMPTY_SIGNS;
-            if (columnStart != null && direction != BlockFace.SELF && direction != null) {
-                try {
-                    addSignsFromRails(signListCache, columnStart, direction);
-                    if (!signListCache.isEmpty()) {
-                        signs = new TrackedSign[signListCache.size()];
-                        for (int i = 0; i < signs.length; i++) {
-                            signs[i] = new TrackedSign(signListCache.get(i), railType, railBlock);
-                        }
+        // Regenerate
+        Block columnStart = railType.getSignColumnStart(railBlock);
+        BlockFace direction = railType.getSignColumnDirection(railBlock);
+
+        // Compute signs. Do check that the sign search input params are correct.
+        TrackedSign[] signs = EMPTY_SIGNS;
+        long[] columns = EMPTY_COLUMNS;
+        if (columnStart != null && direction != BlockFace.SELF && direction != null) {
+            try {
+                addSignsFromRails(signListCache, columnStart, direction);
+                if (!signListCache.isEmpty()) {
+                    signs = new TrackedSign[signListCache.size()];
+                    for (int i = 0; i < signs.length; i++) {
+                        signs[i] = new TrackedSign(signListCache.get(i), railType, railBlock);
                     }
-                } finally {
-                    signListCache.clear();
                 }
+                columns = Arrays.copyOf(columnKeyCache, columnKeyCount);
+            } finally {
+                signListCache.clear();
+                columnKeyCount = 0;
             }
-
-            // Store in cache
-            cached = new CachedRailSignList(signs);
-            cachedRailSigns.put(key, cached);
         }
 
+        // Store in cache
+        cached = new CachedRailSignList(worldRailSigns, key, railType, signs, columns, overlayEnabled);
+        add(cached);
+        if (cached.overlay) {
+            overlayRailSigns.add(cached);
+            if (overlayRailSigns.size() > OVERLAY_MAX_SIZE) {
+                remove(overlayRailSigns.poll());
+            }
+        }
         return cached.signs;
     }
 
+    private static boolean isStillValid(CachedRailSignList cached) {
+        for (TrackedSign sign : cached.signs) {
+            if (!BlockUtil.ISSIGN.get(sign.signBlock)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invalidates the cached signs of all rails whose sign column a sign block is part of.
+     * Must be called when a sign is placed, broken or changed.
+     * 
+     * @param signBlock that changed
+     */
+    public static void invalidate(Block signBlock) {
+        WorldRailSigns worldRailSigns = getWorld(signBlock.getWorld(), false);
+        if (worldRailSigns == null) {
+            return;
+        }
+
+        // Sign posts are in the column itself, wall signs are attached to a block of the column
+        int x = signBlock.getX();
+        int z = signBlock.getZ();
+        invalidateColumn(worldRailSigns, x, z);
+        invalidateColumn(worldRailSigns, x - 1, z);
+        invalidateColumn(worldRailSigns, x + 1, z);
+        invalidateColumn(worldRailSigns, x, z - 1);
+        invalidateColumn(worldRailSigns, x, z + 1);
+    }
+
+    private static void invalidateColumn(WorldRailSigns worldRailSigns, int x, int z) {
+        List<CachedRailSignList> columnSigns = worldRailSigns.columns.get(MathUtil.longHashToLong(x, z));
+        if (columnSigns != null) {
+            for (CachedRailSignList cached : new ArrayList<CachedRailSignList>(columnSigns)) {
+                remove(cached);
+            }
+        }
+    }
+
     public static Block getRailsFromSign(Block signblock) {
         if (signblock == null) {
             return null;
@@ -136,26 +217,148 @@ public class RailSignCache {
         return null;
     }
 
+    /**
+     * Sets whether newly found signs are stored in a separate, size-limited overlay cache
+     * instead of the main cache. While enabled, both caches are used for lookups.
+     * This is used by path finding, which walks a lot of track no train is on.
+     * 
+     * @param enabled whether the overlay is enabled
+     */
+    public static void setOverlayEnabled(boolean enabled) {
+        overlayEnabled = enabled;
+    }
+
+    // removes all signs cached in the overlay
+    public static void resetOverlay() {
+        for (CachedRailSignList cached : overlayRailSigns) {
+            remove(cached);
+        }
+        overlayRailSigns.clear();
+    }
+
     // removes all cached signs, forcing a global recalculation
     public static void reset() {
-        cachedRailSigns.clear();
+        worlds.clear();
+        for (List<CachedRailSignList> bucket : buckets) {
+            bucket.clear();
+        }
+        overlayRailSigns.clear();
+        lastWorld = null;
+        lastWorldRailSigns = null;
+    }
+
+    /**
+     * Removes all signs cached for a world that unloads, so that the world is not kept in memory
+     *
+     * @param world that unloads
+     */
+    public static void unloadWorld(World world) {
+        WorldRailSigns worldRailSigns = worlds.remove(world.getUID());
+        if (worldRailSigns != null) {
+            for (List<CachedRailSignList> bucket : buckets) {
+                Iterator<CachedRailSignList> iter = bucket.iterator();
+                while (iter.hasNext()) {
+                    if (iter.next().world == worldRailSigns) {
+                        iter.remove();
+                    }
+                }
+            }
+            Iterator<CachedRailSignList> iter = overlayRailSigns.iterator();
+            while (iter.hasNext()) {
+                if (iter.next().world == worldRailSigns) {
+                    iter.remove();
+                }
+            }
+        }
+        lastWorld = null;
+        lastWorldRailSigns = null;
     }
 
     // cleans up cached rail sign lists that haven't been accessed in quite a while
     public static void cleanup() {
-        Iterator<CachedRailSignList> iter = cachedRailSigns.values().iterator();
-        while (iter.hasNext()) {
-            if (++iter.next().life > 20) {
-                iter.remove();
+        // The bucket of the new cycle holds the sign lists last accessed EXPIRE_CYCLES+1 cycles ago
+        int expiredCycle = cycle - EXPIRE_CYCLES;
+        cycle++;
+        List<CachedRailSignList> bucket = getBucket(cycle);
+        for (CachedRailSignList cached : bucket) {
+            if (cached.cycle == expiredCycle) {
+                remove(cached);
+            }
+        }
+        bucket.clear();
+    }
+
+    private static List<CachedRailSignList> getBucket(int cycle) {
+        return buckets.get(Math.floorMod(cycle, EXPIRE_CYCLES + 1));
+    }
+
+    private static WorldRailSigns getWorld(World world, boolean create) {
+        if (world == lastWorld) {
+            return lastWorldRailSigns;
+        }
+        UUID worldUUID = world.getUID();
+        WorldRailSigns worldRailSigns = worlds.get(worldUUID);
+        if (worldRailSigns == null) {
+            if (!create) {
+                return null;
+            }
+            worldRailSigns = new WorldRailSigns();
+            worlds.put(worldUUID, worldRailSigns);
+        }
+        lastWorld = world;
+        lastWorldRailSigns = worldRailSigns;
+        return worldRailSigns;
+    }
+
+    private static void add(CachedRailSignList cached) {
+        WorldRailSigns worldRailSigns = cached.world;
+        worldRailSigns.signs.put(cached.key, cached);
+        for (long column : cached.columns) {
+            List<CachedRailSignList> columnSigns = worldRailSigns.columns.get(column);
+            if (columnSigns == null) {
+                columnSigns = new ArrayList<CachedRailSignList>(1);
+                worldRailSigns.columns.put(column, columnSigns);
+            }
+            columnSigns.add(cached);
+        }
+        getBucket(cycle).add(cached);
+    }
+
+    // removes a sign list from the cache, if it was not already removed
+    private static void remove(CachedRailSignList cached) {
+        WorldRailSigns worldRailSigns = cached.world;
+        if (worldRailSigns.signs.get(cached.key) != cached) {
+            return;
+        }
+        worldRailSigns.signs.remove(cached.key);
+        for (long column : cached.columns) {
+            List<CachedRailSignList> columnSigns = worldRailSigns.columns.get(column);
+            if (columnSigns != null && columnSigns.remove(cached) && columnSigns.isEmpty()) {
+                worldRailSigns.columns.remove(column);
             }
         }
     }
 
+    // stores the x/z column key of a block the signs are searched in, if not already stored
+    private static void addColumnKey(Block block) {
+        long column = MathUtil.longHashToLong(block.getX(), block.getZ());
+        for (int i = 0; i < columnKeyCount; i++) {
+            if (columnKeyCache[i] == column) {
+                return;
+            }
+        }
+        if (columnKeyCount == columnKeyCache.length) {
+            columnKeyCache = Arrays.copyOf(columnKeyCache, columnKeyCount << 1);
+        }
+        columnKeyCache[columnKeyCount++] = column;
+    }
+
     private static void addSignsFromRails(List<Block> rval, Block startBlock, BlockFace signDirection) {
         final boolean hasSignPost = FaceUtil.isVertical(signDirection);
         Block currentBlock = startBlock;
         int offsetCtr = 0;
         while (true) {
+            addColumnKey(currentBlock);
             if (hasSignPost && MaterialUtil.isType(currentBlock, SIGN_POST_TYPE)) {
                 // Found a sign post - add it and continue
                 rval.add(currentBlock);
@@ -191,6 +394,9 @@ public class RailSignCache {
         public final Block signBlock;
         public final RailType railType;
         public final Block railBlock;
+        private SignActionHeader header = null;
+        private SignAction[] matchedActions = null;
+        private int matchedActionsVersion = 0;
 
         public TrackedSign(Block signBlock, RailType railType, Block railBlock) {
             this.sign = BlockUtil.getSign(signBlock);
@@ -199,49 +405,86 @@ public class RailSignCache {
             this.railBlock = railBlock;
         }
 
-        @Override
-        public int hashCode() {
-            return this.signBlock.hashCode();
+        /**
+         * Gets the parsed header of this sign. The header is parsed only once, and is parsed
+         * again after {@link #onTextChanged()} is called.
+         * 
+         * @return sign header
+         */
+        public SignActionHeader getHeader() {
+            SignActionHeader header = this.header;
+            if (header == null) {
+                header = SignActionHeader.parseFromSign(this.sign);
+                if (!header.isLegacyConverted()) {
+                    this.header = header; // Converted headers are written back to the sign first
+                }
+            }
+            return header;
         }
 
-        @Override
-        public boolean equals(Object o) {
-            return ((TrackedSign) o).signBlock.equals(this.signBlock);
+        /**
+         * Gets the sign actions that matched this sign the last time it was checked
+         * 
+         * @param version of the registered sign actions
+         * @return matched sign actions, or null if they need to be matched again
+         */
+        public SignAction[] getMatchedActions(int version) {
+            return (this.matchedActionsVersion == version) ? this.matchedActions : null;
         }
-    }
 
-    private static final class CachedRailKey {
-        public final RailType railType;
-        public final Block railBlock;
+        /**
+         * Stores the sign actions that matched this sign
+         * 
+         * @param version of the registered sign actions
+         * @param actions that matched
+         */
+        public void setMatchedActions(int version, SignAction[] actions) {
+            this.matchedActionsVersion = version;
+            this.matchedActions = actions;
+        }
 
-        public CachedRailKey(RailType railType, Block railBlock) {
-            this.railType = railType;
-            this.railBlock = railBlock;
+        /**
+         * Discards the parsed header and matched sign actions, must be called when
+         * the text of the sign is changed.
+         */
+        public void onTextChanged() {
+            this.header = null;
+            this.matchedActions = null;
         }
 
         @Override
         public int hashCode() {
-            return this.railBlock.hashCode();
+            return this.signBlock.hashCode();
         }
 
         @Override
         public boolean equals(Object o) {
-            if (o instanceof CachedRailKey) {
-                CachedRailKey other = (CachedRailKey) o;
-                return other.railBlock.equals(this.railBlock) && other.railType == this.railType;
-            } else {
-                return false;
-            }
+            return ((TrackedSign) o).signBlock.equals(this.signBlock);
         }
     }
 
+    private static final class WorldRailSigns {
+        public final LongHashMap<CachedRailSignList> signs = new LongHashMap<CachedRailSignList>();
+        public final LongHashMap<List<CachedRailSignList>> columns = new LongHashMap<List<CachedRailSignList>>();
+    }
+
     private static final class CachedRailSignList {
+        public final WorldRailSigns world;
+        public final long key;
+        public final RailType railType;
         public final TrackedSign[] signs;
-        public int life; // for automatic purging
+        public final long[] columns; // x/z columns of the blocks searched for signs
+        public final boolean overlay;
+        public int cycle; // last cleanup cycle this was accessed, for automatic purging
 
-        public CachedRailSignList(TrackedSign[] signs) {
+        public CachedRailSignList(WorldRailSigns world, long key, RailType railType, TrackedSign[] signs, long[] columns, boolean overlay) {
+            this.world = world;
+            this.key = key;
+            this.railType = railType;
             this.signs = signs;
-            this.life = 0;
+            this.columns = columns;
+            this.overlay = overlay;
+            this.cycle = RailSignCache.cycle;
         }
     }
 }
@@ -1,38 +1,138 @@
 package com.bergerkiller.bukkit.tc.cache;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.rails.type.RailType;
 import com.bergerkiller.bukkit.tc.utils.RailInfo;
 
 /**
- * Caches rail types found at Minecart positions to improve performance when walking tracks
+ * Caches rail types found at Minecart positions to improve performance when walking tracks.<br>
+ * <br>
+ * Rails are stored per world, keyed by the packed coordinates of the position block.
+ * Every chunk has a generation counter, which is incremented when blocks inside it change.
+ * Cached rails of an older generation are discarded when next accessed, so that a change
+ * only costs a single increment. Rails that are not accessed for a while are expired by
+ * storing them in buckets by the cleanup cycle they were last accessed in, so that cleanup
+ * only has to look at the rails of the oldest cycle.
  */
 public class RailTypeCache {
     private static final RailInfo[] EMPTY_INFO = new RailInfo[0];
-    private static final HashMap<Block, CachedRailType> cachedRailTypes = new HashMap<Block, CachedRailType>();
+    private static final int OVERLAY_MAX_SIZE = 4096;
+    private static final int EXPIRE_CYCLES = 20;
+    private static final Map<UUID, WorldRailTypes> worlds = new HashMap<UUID, WorldRailTypes>();
+    private static final List<List<CachedRailType>> buckets = new ArrayList<List<CachedRailType>>(EXPIRE_CYCLES + 1);
+    private static final BoundedCacheMap<Block, CachedRailType> overlayRailTypes = new BoundedCacheMap<Block, CachedRailType>(OVERLAY_MAX_SIZE);
+    private static boolean overlayEnabled = false;
+    private static int cycle = 0;
+    private static World lastWorld = null;
+    private static WorldRailTypes lastWorldRailTypes = null;
+
+    static {
+        for (int i = 0; i <= EXPIRE_CYCLES; i++) {
+            buckets.add(new ArrayList<CachedRailType>());
+        }
+    }
 
     public static void removeInfo(Block posBlock) {
-        cachedRailTypes.remove(posBlock);
+        WorldRailTypes worldRailTypes = getWorld(posBlock.getWorld(), false);
+        if (worldRailTypes != null) {
+            worldRailTypes.railTypes.remove(Util.packBlockPosition(posBlock));
+        }
+        overlayRailTypes.remove(posBlock);
+    }
+
+    /**
+     * Sets whether newly found rail information is stored in a separate, size-limited overlay cache
+     * instead of the main cache. While enabled, both caches are used for lookups.
+     * This is used by path finding, which walks a lot of track no train is on.
+     *
+     * @param enabled whether the overlay is enabled
+     */
+    public static void setOverlayEnabled(boolean enabled) {
+        overlayEnabled = enabled;
+    }
+
+    // removes all rails cached in the overlay
+    public static void resetOverlay() {
+        overlayRailTypes.clear();
+    }
+
+    /**
+     * Invalidates all rails cached near a block that changed. This discards the rails cached
+     * for the chunk of the block, and of neighbouring chunks when the block is at the edge of one.
+     *
+     * @param block that changed
+     */
+    public static void invalidate(Block block) {
+        WorldRailTypes worldRailTypes = getWorld(block.getWorld(), false);
+        if (worldRailTypes != null) {
+            int x = block.getX();
+            int z = block.getZ();
+            for (int cx = (x - 1) >> 4; cx <= ((x + 1) >> 4); cx++) {
+                for (int cz = (z - 1) >> 4; cz <= ((z + 1) >> 4); cz++) {
+                    ChunkGeneration chunk = worldRailTypes.chunks.get(MathUtil.longHashToLong(cx, cz));
+                    if (chunk != null) {
+                        chunk.generation++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards all rails cached for a chunk that unloaded
+     *
+     * @param chunk that unloaded
+     */
+    public static void unloadChunk(Chunk chunk) {
+        WorldRailTypes worldRailTypes = getWorld(chunk.getWorld(), false);
+        if (worldRailTypes != null) {
+            ChunkGeneration generation = worldRailTypes.chunks.remove(MathUtil.longHashToLong(chunk.getX(), chunk.getZ()));
+            if (generation != null) {
+                generation.generation++;
+            }
+        }
     }
 
     /**
      * Gets all the cached rail informations available at a particular block position
-     * 
+     *
      * @param posBlock
      * @return list of valid rails at a block position
      */
     public static RailInfo[] getInfo(Block posBlock) {
-        CachedRailType cached = cachedRailTypes.get(posBlock);
+        CachedRailType cached = null;
+        WorldRailTypes worldRailTypes = getWorld(posBlock.getWorld(), false);
+        if (worldRailTypes != null) {
+            cached = worldRailTypes.railTypes.get(Util.packBlockPosition(posBlock));
+        }
+        if (cached == null && overlayEnabled) {
+            cached = overlayRailTypes.get(posBlock);
+        }
         if (cached == null) {
             return EMPTY_INFO; // No rails
         }
 
+        // Blocks in the chunk changed since this was cached
+        if (cached.generation != cached.chunk.generation) {
+            removeInfo(posBlock);
+            return EMPTY_INFO;
+        }
+
         // Verify if needed
-        if (cached.life > 0) {
+        if (cached.cycle != cycle) {
             // Verify that all stored rails types are actually still valid (the rails exists)
             // It is incredibly rare that the rails stops existing, so make this as fast as possible!
             // Hence we use an array instead of a list because why not?
@@ -51,8 +151,11 @@ public class RailTypeCache {
                 }
             }
 
-            // Still good. Reset life to 0 so that we don't do this check upon the next invocation.
-            cached.life = 0;
+            // Still good. Move it into the bucket of this cycle so that we don't do this check upon the next invocation.
+            cached.cycle = cycle;
+            if (!cached.overlay) {
+                getBucket(cycle).add(cached);
+            }
         }
 
         return cached.info;
@@ -65,31 +168,134 @@ public class RailTypeCache {
     }
 
     public static void storeInfo(Block block, RailInfo[] info) {
-        cachedRailTypes.put(block, new CachedRailType(info));
+        WorldRailTypes worldRailTypes = getWorld(block.getWorld(), true);
+        long key = Util.packBlockPosition(block);
+        long chunkKey = MathUtil.longHashToLong(block.getX() >> 4, block.getZ() >> 4);
+        ChunkGeneration chunk = worldRailTypes.chunks.get(chunkKey);
+        if (chunk == null) {
+            chunk = new ChunkGeneration();
+            worldRailTypes.chunks.put(chunkKey, chunk);
+        }
+
+        if (overlayEnabled) {
+            overlayRailTypes.put(block, new CachedRailType(info, chunk, null, key, true));
+        } else {
+            CachedRailType cached = new CachedRailType(info, chunk, worldRailTypes, key, false);
+            worldRailTypes.railTypes.put(key, cached);
+            getBucket(cycle).add(cached);
+        }
     }
 
     // removes all cached rails, forcing a global recalculation
     public static void reset() {
-        cachedRailTypes.clear();
+        worlds.clear();
+        for (List<CachedRailType> bucket : buckets) {
+            bucket.clear();
+        }
+        overlayRailTypes.clear();
+        lastWorld = null;
+        lastWorldRailTypes = null;
     }
 
-    // cleans up cached rail types that haven't been accessed in quite a while
-    public static void cleanup() {
-        Iterator<CachedRailType> iter = cachedRailTypes.values().iterator();
+    /**
+     * Removes all rails cached for a world that unloads, so that the world is not kept in memory
+     *
+     * @param world that unloads
+     */
+    public static void unloadWorld(World world) {
+        WorldRailTypes worldRailTypes = worlds.remove(world.getUID());
+        if (worldRailTypes != null) {
+            for (List<CachedRailType> bucket : buckets) {
+                Iterator<CachedRailType> iter = bucket.iterator();
+                while (iter.hasNext()) {
+                    if (iter.next().world == worldRailTypes) {
+                        iter.remove();
+                    }
+                }
+            }
+        }
+        Iterator<Block> iter = overlayRailTypes.keySet().iterator();
         while (iter.hasNext()) {
-            if (++iter.next().life > 20) {
+            if (iter.next().getWorld() == world) {
                 iter.remove();
             }
         }
+        lastWorld = null;
+        lastWorldRailTypes = null;
+    }
+
+    // cleans up cached rail types that haven't been accessed in quite a while
+    public static void cleanup() {
+        // The bucket of the new cycle holds the rails last accessed EXPIRE_CYCLES+1 cycles ago
+        // Rails that were accessed since are also stored in a newer bucket, and are kept
+        int expiredCycle = cycle - EXPIRE_CYCLES;
+        cycle++;
+        List<CachedRailType> bucket = getBucket(cycle);
+        for (CachedRailType cached : bucket) {
+            if (cached.cycle == expiredCycle && cached.world.railTypes.get(cached.key) == cached) {
+                cached.world.railTypes.remove(cached.key);
+            }
+        }
+        bucket.clear();
+
+        if (!overlayRailTypes.isEmpty()) {
+            Iterator<CachedRailType> iter = overlayRailTypes.values().iterator();
+            while (iter.hasNext()) {
+                if ((cycle - iter.next().cycle) > EXPIRE_CYCLES) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    private static List<CachedRailType> getBucket(int cycle) {
+        return buckets.get(Math.floorMod(cycle, EXPIRE_CYCLES + 1));
+    }
+
+    private static WorldRailTypes getWorld(World world, boolean create) {
+        if (world == lastWorld) {
+            return lastWorldRailTypes;
+        }
+        UUID worldUUID = world.getUID();
+        WorldRailTypes worldRailTypes = worlds.get(worldUUID);
+        if (worldRailTypes == null) {
+            if (!create) {
+                return null;
+            }
+            worldRailTypes = new WorldRailTypes();
+            worlds.put(worldUUID, worldRailTypes);
+        }
+        lastWorld = world;
+        lastWorldRailTypes = worldRailTypes;
+        return worldRailTypes;
+    }
+
+    private static final class WorldRailTypes {
+        public final LongHashMap<CachedRailType> railTypes = new LongHashMap<CachedRailType>();
+        public final LongHashMap<ChunkGeneration> chunks = new LongHashMap<ChunkGeneration>();
+    }
+
+    private static final class ChunkGeneration {
+        public int generation = 0;
     }
 
     private static final class CachedRailType {
         public final RailInfo[] info;
-        public int life; // for automatic purging
+        public final ChunkGeneration chunk;
+        public final int generation;
+        public final WorldRailTypes world;
+        public final long key;
+        public final boolean overlay;
+        public int cycle; // last cleanup cycle this was accessed, for automatic purging
 
-        public CachedRailType(RailInfo[] info) {
+        public CachedRailType(RailInfo[] info, ChunkGeneration chunk, WorldRailTypes world, long key, boolean overlay) {
             this.info = info;
-            this.life = 0;
+            this.chunk = chunk;
+            this.generation = chunk.generation;
+            this.world = world;
+            this.key = key;
+            this.overlay = overlay;
+            this.cycle = RailTypeCache.cycle;
         }
     }
 }
@@ -14,6 +14,7 @@ import com.bergerkiller.bukkit.common.utils.CommonUtil;
 import com.bergerkiller.bukkit.common.utils.FaceUtil;
 import com.bergerkiller.bukkit.common.utils.LogicUtil;
 import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.common.wrappers.LongHashSet;
 import com.bergerkiller.bukkit.tc.exception.GroupUnloadedException;
 import com.bergerkiller.bukkit.tc.exception.MemberMissingException;
@@ -22,22 +23,28 @@ import com.bergerkiller.bukkit.tc.TCTimings;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.Util;
 import com.bergerkiller.bukkit.tc.cache.RailMemberCache;
+import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.controller.components.ActionTrackerGroup;
 import com.bergerkiller.bukkit.tc.controller.components.SignTrackerGroup;
 import com.bergerkiller.bukkit.tc.controller.components.RailPath;
+import com.bergerkiller.bukkit.tc.controller.components.RailTracker;
 import com.bergerkiller.bukkit.tc.controller.components.RailTrackerGroup;
+import com.bergerkiller.bukkit.tc.controller.components.TrackLookAheadGroup;
 import com.bergerkiller.bukkit.tc.controller.type.MinecartMemberChest;
 import com.bergerkiller.bukkit.tc.controller.type.MinecartMemberFurnace;
+import com.bergerkiller.bukkit.tc.detector.DetectorRegion;
 import com.bergerkiller.bukkit.tc.events.*;
 import com.bergerkiller.bukkit.tc.properties.CartPropertiesStore;
 import com.bergerkiller.bukkit.tc.properties.IPropertiesHolder;
 import com.bergerkiller.bukkit.tc.properties.TrainProperties;
 import com.bergerkiller.bukkit.tc.properties.TrainPropertiesStore;
 import com.bergerkiller.bukkit.tc.rails.logic.RailLogic;
+import com.bergerkiller.bukkit.tc.rails.type.RailType;
 import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZone;
 import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
 import com.bergerkiller.bukkit.tc.storage.OfflineGroupManager;
 import com.bergerkiller.bukkit.tc.utils.ChunkArea;
+import com.bergerkiller.bukkit.tc.utils.ChunkKeepAliveManager;
 import com.bergerkiller.bukkit.tc.utils.SlowdownMode;
 import com.bergerkiller.bukkit.tc.utils.TrackWalkingPoint;
 import com.bergerkiller.generated.net.minecraft.server.ChunkHandle;
@@ -47,7 +54,9 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.util.Vector;
 
@@ -63,11 +72,23 @@ import java.util.logging.Level;
 public class MinecartGroup extends MinecartGroupStore implements IPropertiesHolder {
     private static final long serialVersionUID = 3;
     private static final LongHashSet chunksBuffer = new LongHashSet(50);
+    private static final int CHUNK_PRELOAD_TICKS = 100; // Load chunks the train reaches within 5 seconds ahead of time
+    private static final int DORMANT_DELAY_TICKS = 20; // Ticks a train must stand still before it becomes dormant
+    private static final double UPDATE_STEP_DISTANCE = 0.4; // Maximum distance moved in a single update step
+    private static final double PLAIN_TRACK_MARGIN = 2.0; // Extra distance of plain track required ahead for large update steps
+    private static final double PLAIN_STEP_DISTANCE = 1.0; // Maximum distance moved in a single update step over plain track
     protected final ToggledState networkInvalid = new ToggledState();
     protected final ToggledState ticked = new ToggledState();
     protected final ChunkArea chunkArea = new ChunkArea();
+    private boolean keepingChunksLoaded = false;
+    private boolean dormant = false;
+    private boolean suspended = false;
+    private int stationaryTicks = 0;
+    private LongHashSet preloadedChunks = new LongHashSet();
+    private World preloadedChunksWorld = null;
     private final SignTrackerGroup signTracker = new SignTrackerGroup(this);
     private final RailTrackerGroup railTracker = new RailTrackerGroup(this);
+    private final TrackLookAheadGroup lookAhead = new TrackLookAheadGroup(this);
     private final ActionTrackerGroup actionTracker = new ActionTrackerGroup(this);
     protected long lastSync = Long.MIN_VALUE;
     private TrainProperties prop = null;
@@ -76,6 +97,8 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
     private double updateSpeedFactor = 1.0;
     private int updateStepCount = 1;
     private int updateStepNr = 1;
+    private double updateStepDistance = UPDATE_STEP_DISTANCE;
+    private double updateStepWeight = 1.0;
     private boolean unloaded = false;
 
     protected MinecartGroup() {
@@ -231,6 +254,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
     private void addMember(MinecartMember<?> member) {
         notifyPhysicsChange();
+        this.wakeUp();
         member.setGroup(this);
         this.getSignTracker().updatePosition();
         this.getProperties().add(member);
@@ -332,6 +356,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
     private MinecartMember<?> removeMember(int index) {
         notifyPhysicsChange();
+        this.wakeUp();
         MinecartMember<?> member = super.get(index);
         MemberRemoveEvent.call(member);
         super.remove(index);
@@ -487,6 +512,14 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         // Unload
         this.stop(true);
         groups.remove(this);
+        for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAll()) {
+            removeChunkGroup(chunk, this);
+            if (this.keepingChunksLoaded) {
+                ChunkKeepAliveManager.release(chunk);
+            }
+        }
+        this.keepingChunksLoaded = false;
+        this.releasePreloadedChunks();
         for (MinecartMember<?> member : this) {
             member.group = null;
             member.setUnloaded(true);
@@ -887,6 +920,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
     @Override
     public void onPropertiesChanged() {
+        this.wakeUp();
         this.getSignTracker().update();
         for (MinecartMember<?> member : this.toArray()) {
             member.onPropertiesChanged();
@@ -954,6 +988,28 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         return this.updateStepNr == this.updateStepCount;
     }
 
+    /**
+     * Gets the maximum distance a minecart of this train can move during the current update step.
+     * This is 0.4 blocks, unless the train moves over plain, straight track in larger steps.
+     *
+     * @return update step distance
+     */
+    public double getUpdateStepDistance() {
+        return this.updateStepDistance;
+    }
+
+    /**
+     * Gets the number of regular update steps the current update step is performed in place of.
+     * When a train moves fast over plain, straight track, it is moved in larger update steps of
+     * up to a block, instead of several update steps of 0.4 blocks. Effects that are applied every update step,
+     * like friction, should then be applied this many times to keep the same effect per tick.
+     *
+     * @return update step weight (normally 1.0)
+     */
+    public double getUpdateStepWeight() {
+        return this.updateStepWeight;
+    }
+
     /**
      * Aborts any physics routines going on in this tick
      */
@@ -1037,8 +1093,34 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             // Refresh the chunk area tracker using this information
             this.chunkArea.refresh(this.getWorld(), chunksBuffer);
 
+            // Keep the index of groups by chunk up to date
+            for (ChunkArea.OwnedChunk chunk : this.chunkArea.getRemoved()) {
+                removeChunkGroup(chunk, this);
+            }
+            for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAdded()) {
+                addChunkGroup(chunk, this);
+            }
+
+            // Chunks this group moved away from are no longer kept loaded by it
+            if (this.keepingChunksLoaded) {
+                for (ChunkArea.OwnedChunk chunk : this.chunkArea.getRemoved()) {
+                    ChunkKeepAliveManager.release(chunk);
+                }
+            }
+
             // Keep-chunks-loaded or automatic unloading when moving into unloaded chunks
             if (this.canUnload()) {
+                // Stop keeping the chunks loaded that were kept loaded before
+                if (this.keepingChunksLoaded) {
+                    this.keepingChunksLoaded = false;
+                    for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAll()) {
+                        if (!chunk.isAdded()) {
+                            ChunkKeepAliveManager.release(chunk);
+                        }
+                    }
+                    this.releasePreloadedChunks();
+                }
+
                 // Check all newly added chunks whether the chunk is unloaded
                 // When such a chunk is found, unload this train
                 for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAdded()) {
@@ -1048,9 +1130,14 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                     }
                 }
             } else {
-                // Enqueue chunks we moved away from for unloading
-                for (ChunkArea.OwnedChunk chunk : this.chunkArea.getRemoved()) {
-                    chunk.unloadChunkRequest();
+                // Start keeping the chunks loaded that were already nearby
+                if (!this.keepingChunksLoaded) {
+                    this.keepingChunksLoaded = true;
+                    for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAll()) {
+                        if (!chunk.isAdded()) {
+                            ChunkKeepAliveManager.acquire(chunk);
+                        }
+                    }
                 }
 
                 // Load chunks closeby right away and guarantee they are loaded at all times
@@ -1061,15 +1148,94 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 }
 
                 // Load chunks we entered, and are far enough away, for asynchronous loading
+                // Chunks already kept loaded by other trains or spawn signs need no loading
                 for (ChunkArea.OwnedChunk chunk : this.chunkArea.getAdded()) {
-                    if (chunk.getDistance() > 1) {
+                    if (ChunkKeepAliveManager.acquire(chunk) && chunk.getDistance() > 1) {
                         chunk.loadChunkRequest();
                     }
                 }
+
+                // Load chunks along the track ahead when entering new chunks
+                if (!this.chunkArea.getAdded().isEmpty() || this.preloadedChunksWorld == null) {
+                    this.preloadChunksAhead();
+                }
             }
         }
     }
 
+    /**
+     * Walks the track ahead of the train, and asynchronously loads the chunks the train will
+     * move through in the next few seconds. This makes sure these chunks are already loaded
+     * by the time they come within range of the train, avoiding synchronous chunk loads.
+     * Walking stops at the first chunk that is not loaded yet, and continues from there
+     * once the train enters new chunks.
+     */
+    private void preloadChunksAhead() {
+        if (this.isEmpty()) {
+            this.releasePreloadedChunks();
+            return;
+        }
+
+        World world = this.getWorld();
+        LongHashSet chunks = new LongHashSet();
+        double speed = Math.min(this.head().getEntity().vel.length(), this.getProperties().getSpeedLimit());
+        double distance = speed * CHUNK_PRELOAD_TICKS;
+        if (world != null && distance > (16.0 * ChunkArea.CHUNK_RANGE)) {
+            TrackWalkingPoint iter = new TrackWalkingPoint(this.head().discoverRail());
+            iter.setLoopFilter(true);
+            long lastChunk = 0;
+            boolean first = true;
+            while (iter.movedTotal <= distance && iter.moveFull()) {
+                int cx = iter.state.railBlock().getX() >> 4;
+                int cz = iter.state.railBlock().getZ() >> 4;
+                long chunk = MathUtil.longHashToLong(cx, cz);
+                if (!first && chunk == lastChunk) {
+                    continue;
+                }
+                first = false;
+                lastChunk = chunk;
+
+                // Load the chunks around the rails, stop walking when they are not all loaded yet
+                boolean loaded = true;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        chunks.add(cx + dx, cz + dz);
+                        loaded &= world.isChunkLoaded(cx + dx, cz + dz);
+                    }
+                }
+                if (!loaded) {
+                    break;
+                }
+            }
+        }
+
+        // Keep the new chunks loaded before releasing the previous ones, to avoid them unloading in between
+        LongHashSet.LongIterator iter = chunks.longIterator();
+        while (iter.hasNext()) {
+            long chunk = iter.next();
+            int cx = MathUtil.longHashMsw(chunk);
+            int cz = MathUtil.longHashLsw(chunk);
+            if (ChunkKeepAliveManager.acquire(world, cx, cz) && !world.isChunkLoaded(cx, cz)) {
+                WorldUtil.getChunkAsync(world, cx, cz, ChunkArea.DUMMY_RUNNABLE);
+            }
+        }
+        this.releasePreloadedChunks();
+        this.preloadedChunks = chunks;
+        this.preloadedChunksWorld = world;
+    }
+
+    private void releasePreloadedChunks() {
+        if (this.preloadedChunksWorld != null) {
+            LongHashSet.LongIterator iter = this.preloadedChunks.longIterator();
+            while (iter.hasNext()) {
+                long chunk = iter.next();
+                ChunkKeepAliveManager.release(this.preloadedChunksWorld, MathUtil.longHashMsw(chunk), MathUtil.longHashLsw(chunk));
+            }
+            this.preloadedChunksWorld = null;
+        }
+        this.preloadedChunks.clear();
+    }
+
     public void logCartInfo(String header) {
         StringBuilder msg = new StringBuilder(size() * 7 + 10);
         msg.append(header);
@@ -1128,13 +1294,11 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         double mutexDistance = 2.0 + selfCartOffset;
         double checkDistance = Math.max(mutexDistance, waitDistance);
 
-        UUID worldUUID = this.getWorld().getUID();
-        TrackWalkingPoint iter = new TrackWalkingPoint(this.head().discoverRail());
-        while (iter.movedTotal <= checkDistance && iter.moveFull()) {
+        for (TrackLookAheadGroup.Step step : this.lookAhead.walk(checkDistance)) {
 
             // Check for mutex zones the next block. If one is found that is occupied, stop right away
-            if (iter.movedTotal <= mutexDistance) {
-                MutexZone zone = MutexZoneCache.find(worldUUID, new IntVector3(iter.state.railBlock()));
+            if (step.movedTotal <= mutexDistance) {
+                MutexZone zone = step.getMutexZone();
                 if (zone != null && !zone.tryEnter(this)) {
                     return 0.0;
                 }
@@ -1153,14 +1317,14 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             Location state_position = null;
             Location member_position = null;
             double minSpeedAhead = Double.MAX_VALUE;
-            for (MinecartMember<?> member : RailMemberCache.findAll(iter.state.railBlock())) {
+            for (MinecartMember<?> member : step.getMembers()) {
                 if (member.getGroup() == this) {
                     continue;
                 }
 
                 // Retrieve & re-use (readonly)
                 if (state_position == null) {
-                    state_position = iter.state.positionLocation();
+                    state_position = step.getLocation();
                 }
 
                 // Member center position & re-use (readonly)
@@ -1172,11 +1336,11 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
 
                 // Is the minecart 'in front' of the current position on the rails, or behind us?
                 // This is important when iterating over the first track only, because then this is not guaranteed
-                if (iter.movedTotal == 0.0) {
+                if (step.movedTotal == 0.0) {
                     Vector delta = new Vector(member_position.getX() - state_position.getX(),
                                               member_position.getY() - state_position.getY(),
                                               member_position.getZ() - state_position.getZ());
-                    if (delta.dot(iter.state.motionVector()) < 0.0) {
+                    if (delta.dot(step.state.motionVector()) < 0.0) {
                         continue;
                     }
                 }
@@ -1187,7 +1351,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                                           (double) member.getEntity().getWidth() * 0.5;
 
                 // Find the distance we can still move from our current position
-                double remaining = ((iter.movedTotal + distanceToMember) - waitDistance);
+                double remaining = ((step.movedTotal + distanceToMember) - waitDistance);
 
                 // Allow for 2-block distance until slowing down
                 final double MIN_DISTANCE = 2.0;
@@ -1200,7 +1364,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 double otherSpeed = MathUtil.clamp(member_velocity.length(), member.getEntity().getMaxSpeed());
 
                 // If moving towards me, stop right away! When barely moving, ignore this check.
-                if (otherSpeed > 1e-6 && iter.state.position().motDot(member_velocity) < 0.0) {
+                if (otherSpeed > 1e-6 && step.state.position().motDot(member_velocity) < 0.0) {
                     return 0.0;
                 }
 
@@ -1237,6 +1401,79 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         }
     }
 
+    /**
+     * Gets whether this train is dormant. A train becomes dormant when it has stood still
+     * without any actions for a little while. Dormant trains skip all physics, until
+     * they move, are moved, are given an action or are woken up using {@link #wakeUp()}.
+     *
+     * @return True if this train is dormant
+     */
+    public boolean isDormant() {
+        return this.dormant;
+    }
+
+    /**
+     * Gets whether this train is suspended. An unmanned train that stays dormant for
+     * the configured amount of ticks is suspended. Besides skipping physics, suspended trains
+     * also skip updating their attachments, sounds and network synchronization,
+     * until they are woken up again.
+     *
+     * @return True if this train is suspended
+     */
+    public boolean isSuspended() {
+        return this.suspended;
+    }
+
+    /**
+     * Wakes this train up if it is dormant or suspended, so that it performs all physics again.
+     * Should be called when something changed that could make the train move,
+     * such as changes to the rails it is on, or when players interact with it.
+     */
+    public void wakeUp() {
+        this.dormant = false;
+        this.suspended = false;
+        this.stationaryTicks = 0;
+    }
+
+    // Checks whether none of the minecarts moved during the last physics update, and none are about to move
+    private boolean isStationary() {
+        if (this.getActions().hasAnyAction()) {
+            return false;
+        }
+        boolean manualMovementAllowed = this.getProperties().isManualMovementAllowed();
+        for (MinecartMember<?> member : this) {
+            CommonMinecart<?> entity = member.getEntity();
+
+            // Passengers can push the minecart when manual movement is allowed
+            if (manualMovementAllowed) {
+                for (Entity passenger : entity.getPassengers()) {
+                    if (passenger instanceof LivingEntity) {
+                        return false;
+                    }
+                }
+            }
+
+            // Furnace minecarts with fuel will start moving
+            if (member instanceof MinecartMemberFurnace && ((MinecartMemberFurnace) member).getEntity().hasFuel()) {
+                return false;
+            }
+
+            if (entity.loc.getX() != entity.last.getX() ||
+                entity.loc.getY() != entity.last.getY() ||
+                entity.loc.getZ() != entity.last.getZ())
+            {
+                return false;
+            }
+            double velX = entity.vel.getX();
+            double velY = entity.vel.getY();
+            double velZ = entity.vel.getZ();
+            if ((velX * velX + velY * velY + velZ * velZ) > 1e-12) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void doPhysics() {
         // NOP if unloaded
         if (this.isUnloaded()) {
@@ -1305,12 +1542,40 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             return;
         }
 
+        // Dormant trains stand still, so rails, signs and wheels do not have to be updated
+        // As soon as the train moves, is moved, or is given an action, it wakes up again
+        if (this.dormant) {
+            if (this.isStationary()) {
+                // Unmanned trains that stay dormant long enough are suspended
+                if (TCConfig.suspendIdleTrainsDelay <= 0 || this.hasPassenger()) {
+                    this.suspended = false;
+                } else if (!this.suspended && ++this.stationaryTicks >= (DORMANT_DELAY_TICKS + TCConfig.suspendIdleTrainsDelay)) {
+                    this.suspended = true;
+                }
+                return;
+            }
+            this.wakeUp();
+        }
+
         try {
             double totalforce = this.getAverageForce();
             double speedlimit = this.getProperties().getSpeedLimit();
             int update_steps = 1;
-            if (totalforce > 0.4 && speedlimit > 0.4) {
-                update_steps = (int) Math.ceil(speedlimit / 0.4);
+            this.updateStepDistance = UPDATE_STEP_DISTANCE;
+            this.updateStepWeight = 1.0;
+            if (totalforce > UPDATE_STEP_DISTANCE && speedlimit > UPDATE_STEP_DISTANCE) {
+                update_steps = (int) Math.ceil(speedlimit / UPDATE_STEP_DISTANCE);
+
+                // On plain, straight track nothing happens along the way, so the train can be moved in larger steps
+                // Steps are limited to a block, so that minecarts never move past a rails block in a single step
+                if (TCConfig.adaptivePhysicsSteps && this.isPlainTrackAhead(speedlimit + PLAIN_TRACK_MARGIN)) {
+                    int plain_steps = (int) Math.ceil(speedlimit / PLAIN_STEP_DISTANCE);
+                    if (plain_steps < update_steps) {
+                        this.updateStepDistance = speedlimit / plain_steps;
+                        this.updateStepWeight = (double) update_steps / (double) plain_steps;
+                        update_steps = plain_steps;
+                    }
+                }
             }
             this.updateSpeedFactor = 1.0 / (double) update_steps;
 
@@ -1344,6 +1609,8 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             }
 
             this.updateSpeedFactor = 1.0;
+            this.updateStepDistance = UPDATE_STEP_DISTANCE;
+            this.updateStepWeight = 1.0;
 
             // Server bugfix: prevents an old Minecart duplicate staying behind inside a chunk when saved
             // This issue has been resolved on Paper, see https://github.com/PaperMC/Paper/issues/1223
@@ -1358,6 +1625,13 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 }
             }
 
+            // Trains that stood still for a while become dormant
+            if (!this.isStationary()) {
+                this.stationaryTicks = 0;
+            } else if (++this.stationaryTicks >= DORMANT_DELAY_TICKS) {
+                this.dormant = true;
+            }
+
         } catch (GroupUnloadedException ex) {
             //this group is gone
         } catch (Throwable t) {
@@ -1367,6 +1641,113 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
         }
     }
 
+    /**
+     * Checks whether the rails this train is on, and the rails ahead of it up to a distance, are plain track.
+     * Plain track is regular, straight and level rails all along the same x or z axis, without any signs,
+     * detector regions, mutex zones or other trains. Moving over plain track in update steps of up to a block
+     * has the same outcome as moving over it in many small update steps.
+     *
+     * @param distance ahead of the train to check
+     * @return True if all the track is plain
+     */
+    private boolean isPlainTrackAhead(double distance) {
+        // Signs and detector regions the train is on must be updated every update step
+        SignTrackerGroup signTracker = this.getSignTracker();
+        if (signTracker.hasSigns() || !signTracker.getActiveDetectorRegions().isEmpty()) {
+            return false;
+        }
+
+        // All rails the train is on must be plain
+        RailPath.Point direction = null;
+        for (RailTracker.TrackedRail rail : this.getRailTracker().getRailInformation()) {
+            if (rail.type != RailType.REGULAR || (direction = getPlainDirection(rail.getPath(), direction)) == null) {
+                return false;
+            }
+        }
+
+        // All rails ahead of the train must be plain, and must be loaded
+        World world = this.getWorld();
+        TrackWalkingPoint iter = new TrackWalkingPoint(this.head().discoverRail());
+        long lastChunk = 0;
+        boolean first = true;
+        while (iter.movedTotal <= distance) {
+            Block railBlock = iter.state.railBlock();
+            if (iter.state.railType() != RailType.REGULAR || (direction = getPlainDirection(iter.currentRailPath, direction)) == null) {
+                return false;
+            }
+            if (RailSignCache.getSigns(iter.state.railType(), railBlock).length > 0 || !DetectorRegion.getRegions(railBlock).isEmpty()) {
+                return false;
+            }
+            if (MutexZoneCache.find(world.getUID(), new IntVector3(railBlock)) != null) {
+                return false;
+            }
+            for (MinecartMember<?> member : RailMemberCache.findAll(railBlock)) {
+                if (member.group != this) {
+                    return false;
+                }
+            }
+
+            // Do not load chunks by walking into them
+            int cx = railBlock.getX() >> 4;
+            int cz = railBlock.getZ() >> 4;
+            long chunk = MathUtil.longHashToLong(cx, cz);
+            if (first || chunk != lastChunk) {
+                first = false;
+                lastChunk = chunk;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        if (!world.isChunkLoaded(cx + dx, cz + dz)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            if (!iter.moveFull()) {
+                return false; // End of the rails
+            }
+        }
+        return true;
+    }
+
+    // Gets the direction of a straight, level and axis-aligned path, which must be the same as the direction found before
+    static RailPath.Point getPlainDirection(RailPath path, RailPath.Point direction) {
+        RailPath.Segment[] segments = path.getSegments();
+        if (segments.length == 0) {
+            return null;
+        }
+        for (RailPath.Segment segment : segments) {
+            if (segment.isZeroLength()) {
+                continue;
+            }
+            // Only level track along the x or z axis, so that a step of a block never skips a rails block
+            RailPath.Point dt = segment.dt_norm;
+            if (dt.y < -1e-6 || dt.y > 1e-6 || (Math.abs(dt.x) > 1e-6 && Math.abs(dt.z) > 1e-6)) {
+                return null;
+            }
+            if (direction == null) {
+                direction = dt;
+            } else if (Math.abs(dt.x * direction.x + dt.z * direction.z) < (1.0 - 1e-6)) {
+                return null;
+            }
+        }
+        return direction;
+    }
+
+    // Checks whether any of the minecarts moved into another block during the current update step
+    private boolean hasMovedBlock() {
+        for (MinecartMember<?> member : this) {
+            CommonMinecart<?> entity = member.getEntity();
+            if (MathUtil.floor(entity.loc.getX()) != MathUtil.floor(entity.last.getX()) ||
+                MathUtil.floor(entity.loc.getY()) != MathUtil.floor(entity.last.getY()) ||
+                MathUtil.floor(entity.loc.getZ()) != MathUtil.floor(entity.last.getZ()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean doPhysics_step() throws GroupUnloadedException {
         this.breakPhysics = false;
         try {
@@ -1377,9 +1758,9 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             }
 
             // Validate members and set max speed
-            // We must limit it to 0.4, otherwise derailment can occur when the
-            // minecart speeds up inside the physics update function
-            double speedLimitClamped = MathUtil.clamp(this.getProperties().getSpeedLimit() * this.updateSpeedFactor, 0.4);
+            // We must limit it to the update step distance (0.4, or up to a block over plain track),
+            // otherwise derailment can occur when the minecart speeds up inside the physics update function
+            double speedLimitClamped = MathUtil.clamp(this.getProperties().getSpeedLimit() * this.updateSpeedFactor, this.updateStepDistance);
             for (MinecartMember<?> mm : this) {
                 mm.checkMissing();
                 mm.getEntity().setMaxSpeed(speedLimitClamped);
@@ -1396,7 +1777,8 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             }
 
             // Update some per-tick stuff
-            if (this.teleportImmunityTick > 0) {
+            boolean firstUpdateStep = (this.updateStepNr == 1);
+            if (firstUpdateStep && this.teleportImmunityTick > 0) {
                 this.teleportImmunityTick--;
             }
 
@@ -1405,10 +1787,12 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
             this.getSignTracker().refresh();
 
             // Perform block change Minecart logic, also take care of potential new block changes
+            boolean blockChanged = false;
             for (MinecartMember<?> member : this) {
                 member.checkMissing();
                 if (member.hasBlockChanged() | member.forcedBlockUpdate.clear()) {
                     // Perform events and logic - validate along the way
+                    blockChanged = true;
                     MemberBlockChangeEvent.call(member, member.getLastBlock(), member.getBlock());
                     member.checkMissing();
                     member.onBlockChange(member.getLastBlock(), member.getBlock());
@@ -1416,16 +1800,23 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                     member.checkMissing();
                 }
             }
-            this.getSignTracker().refresh();
 
-            this.updateDirection();
-            if (!this.doConnectionCheck()) {
-                return true; //false;
-            }
+            // Block changes can fire signs that alter the train, which must be handled before moving
+            // Without block changes, nothing changed since the end of the previous update step
+            if (firstUpdateStep || blockChanged) {
+                this.getSignTracker().refresh();
 
-            this.tickActions();
+                this.updateDirection();
+                if (!this.doConnectionCheck()) {
+                    return true; //false;
+                }
+            }
 
-            this.updateDirection();
+            // Actions can change the velocity of the train
+            if (this.getActions().hasAnyAction()) {
+                this.tickActions();
+                this.updateDirection();
+            }
 
             // Perform velocity updates
             for (MinecartMember<?> member : this) {
@@ -1453,7 +1844,7 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 double speedAhead = this.getSpeedAhead(this.getProperties().getWaitDistance());
                 double newSpeedLimit = Math.min(this.getProperties().getSpeedLimit(), speedAhead);
                 if (newSpeedLimit < this.getProperties().getSpeedLimit()) {
-                    speedLimitClamped = MathUtil.clamp(newSpeedLimit * this.updateSpeedFactor, 0.4);
+                    speedLimitClamped = MathUtil.clamp(newSpeedLimit * this.updateSpeedFactor, this.updateStepDistance);
                     for (MinecartMember<?> mm : this) {
                         mm.checkMissing();
                         mm.getEntity().setMaxSpeed(speedLimitClamped);
@@ -1534,10 +1925,14 @@ public class MinecartGroup extends MinecartGroupStore implements IPropertiesHold
                 return true; //false;
             }
 
-            // Refresh chunks
-            this.updateChunkInformation();
+            // Refresh chunks at the end of the tick, or sooner when moving into another block
+            // Chunks must be refreshed when moving into another chunk, to unload when entering an unloaded chunk
+            if (this.isLastUpdateStep() || this.hasMovedBlock()) {
+                this.updateChunkInformation();
+            }
 
             // Refresh wheel position information, important to do it AFTER updateDirection()
+            // This is done every update step, as the next step calculates cart spacing using the wheel positions
             for (MinecartMember<?> member : this) {
                 try (Timings t = TCTimings.MEMBER_PHYSICS_UPDATE_WHEELS.start()) {
                     member.getWheels().update();
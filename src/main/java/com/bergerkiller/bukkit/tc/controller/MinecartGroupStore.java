@@ -1,14 +1,22 @@
 package com.bergerkiller.bukkit.tc.controller;
 
 import com.bergerkiller.bukkit.common.collections.ImplicitlySharedSet;
+import com.bergerkiller.bukkit.common.utils.FaceUtil;
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.Util;
+import com.bergerkiller.bukkit.tc.cache.RailMemberCache;
 import com.bergerkiller.bukkit.tc.controller.spawnable.SpawnableGroup;
 import com.bergerkiller.bukkit.tc.controller.spawnable.SpawnableMember;
 import com.bergerkiller.bukkit.tc.events.GroupCreateEvent;
 import com.bergerkiller.bukkit.tc.events.GroupLinkEvent;
 import com.bergerkiller.bukkit.tc.properties.TrainProperties;
+import com.bergerkiller.bukkit.tc.utils.ChunkArea;
 import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 
@@ -18,6 +26,7 @@ public class MinecartGroupStore extends ArrayList<MinecartMember<?>> {
     private static final long serialVersionUID = 1;
     protected static ImplicitlySharedSet<MinecartGroup> groups = new ImplicitlySharedSet<MinecartGroup>();
     protected static boolean hasPhysicsChanges = false;
+    private static final Map<UUID, LongHashMap<List<MinecartGroup>>> groupsByChunk = new HashMap<UUID, LongHashMap<List<MinecartGroup>>>();
 
     /**
      * Called onPhysics for all Minecart entities who didn't get ticked in the previous run.
@@ -162,6 +171,80 @@ public class MinecartGroupStore extends ArrayList<MinecartMember<?>> {
         return groups;
     }
 
+    /**
+     * Gets all the groups that have the chunk nearby one of their minecarts, as tracked by their
+     * chunk area. These are the groups that need to be checked when the chunk unloads.
+     * The returned list changes when groups move, so iterate a copy when groups could move or unload.
+     * 
+     * @param world of the chunk
+     * @param chunkLongCoord chunk coordinates, encoded as a Long
+     * @return unmodifiable list of groups nearby the chunk
+     */
+    public static List<MinecartGroup> getGroupsNearChunk(World world, long chunkLongCoord) {
+        LongHashMap<List<MinecartGroup>> worldGroups = groupsByChunk.get(world.getUID());
+        if (worldGroups != null) {
+            List<MinecartGroup> chunkGroups = worldGroups.get(chunkLongCoord);
+            if (chunkGroups != null) {
+                return Collections.unmodifiableList(chunkGroups);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Wakes up all dormant trains that are on the rails of a block that changed, or on
+     * rails directly next to it, so that they respond to the change during the next physics update.
+     * Changes elsewhere can not affect trains that stand still, and do not wake them.
+     *
+     * @param block that changed
+     */
+    public static void wakeUpNear(Block block) {
+        UUID worldUUID = block.getWorld().getUID();
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        wakeUpOnRails(worldUUID, x, y, z);
+        for (BlockFace face : FaceUtil.BLOCK_SIDES) {
+            wakeUpOnRails(worldUUID, x + face.getModX(), y + face.getModY(), z + face.getModZ());
+        }
+    }
+
+    private static void wakeUpOnRails(UUID worldUUID, int x, int y, int z) {
+        for (MinecartMember<?> member : RailMemberCache.findAll(worldUUID, x, y, z)) {
+            MinecartGroup group = member.getGroup();
+            if (group != null && !member.isUnloaded()) {
+                group.wakeUp();
+            }
+        }
+    }
+
+    protected static void addChunkGroup(ChunkArea.OwnedChunk chunk, MinecartGroup group) {
+        UUID worldUUID = chunk.getWorld().getUID();
+        LongHashMap<List<MinecartGroup>> worldGroups = groupsByChunk.get(worldUUID);
+        if (worldGroups == null) {
+            worldGroups = new LongHashMap<List<MinecartGroup>>();
+            groupsByChunk.put(worldUUID, worldGroups);
+        }
+        long key = MathUtil.longHashToLong(chunk.getX(), chunk.getZ());
+        List<MinecartGroup> chunkGroups = worldGroups.get(key);
+        if (chunkGroups == null) {
+            chunkGroups = new ArrayList<MinecartGroup>(1);
+            worldGroups.put(key, chunkGroups);
+        }
+        chunkGroups.add(group);
+    }
+
+    protected static void removeChunkGroup(ChunkArea.OwnedChunk chunk, MinecartGroup group) {
+        LongHashMap<List<MinecartGroup>> worldGroups = groupsByChunk.get(chunk.getWorld().getUID());
+        if (worldGroups != null) {
+            long key = MathUtil.longHashToLong(chunk.getX(), chunk.getZ());
+            List<MinecartGroup> chunkGroups = worldGroups.get(key);
+            if (chunkGroups != null && chunkGroups.remove(group) && chunkGroups.isEmpty()) {
+                worldGroups.remove(key);
+            }
+        }
+    }
+
     public static MinecartGroup get(Entity e) {
         final MinecartMember<?> mm = MinecartMemberStore.getFromEntity(e);
         return mm == null ? null : mm.getGroup();
@@ -751,8 +751,9 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         double moved = direction.length();
 
         // When distance is too small or too large (teleport), simply use the current position only
+        // Over plain track a train can move up to a block in one update step, which is not a teleport
         final double smallStep = 1e-7;
-        if (moved <= smallStep || moved > 0.45) {
+        if (moved <= smallStep || moved > this.getMaxStepMove()) {
             state.position().setLocation(entity.getLocation());
             return RailType.loadRailInformation(state);
         }
@@ -763,7 +764,7 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         // Using this causes reverse() to not work anymore
 
         // Iterate the blocks from the preMovePosition to the current position and discover rails here
-        // Because we move such a short distance (<=0.45) it is very rare for more than two blocks to ever be iterated
+        // Because we move such a short distance (<=0.45, or a block along an axis) it is very rare for more than two blocks to ever be iterated
         // So we take a shortcut and only check the pre-move and current positions for blocks in that order
         // The pre-move position might contain an outdated block though, so add a very small amount to it in the direction
         // There is a TODO here to use a proper block iterator.
@@ -781,6 +782,12 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         return RailType.loadRailInformation(state);
     }
 
+    // Gets the maximum distance moved during a single update step, beyond which a movement is a teleport
+    private double getMaxStepMove() {
+        MinecartGroup group = this.group;
+        return (group == null) ? 0.45 : (group.getUpdateStepDistance() + 0.05);
+    }
+
     /**
      * Looks at the current position information and attempts to discover any rails
      * at these positions. The movement of the minecart is taken into account.
@@ -837,8 +844,8 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         double toMove = MathUtil.length(pos.motX, pos.motY, pos.motZ);
 
         // When movement is large, teleport is almost certain
-        // Because the only movement allowed in onMove is limited to 0.4
-        if (toMove > 0.45) {
+        // Because the only movement allowed in onMove is limited to the update step distance
+        if (toMove > this.getMaxStepMove()) {
             this.entity.getLocation(this.preMovePosition);
             pos = RailPath.Position.fromTo(this.preMovePosition, this.preMovePosition);
             toMove = 0.0;
@@ -1359,6 +1366,7 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
 
         // Enable/disable collision handling to improve performance
         if (this.group != null) {
+            this.group.wakeUp();
             this.setEntityCollisionEnabled(this.group.getProperties().getColliding());
             this.setBlockCollisionEnabled(this.group.getProperties().blockCollision == CollisionMode.DEFAULT);
         }
@@ -1754,12 +1762,19 @@ public abstract class MinecartMember<T extends CommonMinecart<?>> extends Entity
         this.doPostMoveLogic();
         if (!this.isDerailed()) {
             // Slowing down of minecarts
+            // When moving in larger update steps over plain track, apply friction of all the update steps it replaces
             if (this.getGroup().getProperties().isSlowingDown(SlowdownMode.FRICTION)) {
+                double multiplier;
                 if (entity.hasPassenger() || !entity.isSlowWhenEmpty() || !TCConfig.slowDownEmptyCarts) {
-                    entity.vel.multiply(TCConfig.slowDownMultiplierNormal);
+                    multiplier = TCConfig.slowDownMultiplierNormal;
                 } else {
-                    entity.vel.multiply(TCConfig.slowDownMultiplierSlow);
+                    multiplier = TCConfig.slowDownMultiplierSlow;
+                }
+                double weight = this.getGroup().getUpdateStepWeight();
+                if (weight != 1.0) {
+                    multiplier = Math.pow(multiplier, weight);
                 }
+                entity.vel.multiply(multiplier);
             }
         }
 
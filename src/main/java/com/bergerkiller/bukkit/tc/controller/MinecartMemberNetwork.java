@@ -12,10 +12,12 @@ import com.bergerkiller.bukkit.common.utils.MathUtil;
 import com.bergerkiller.bukkit.common.utils.PacketUtil;
 import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.common.wrappers.EntityTracker;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.TCTimings;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.attachments.config.AttachmentModel;
 import com.bergerkiller.bukkit.tc.attachments.config.AttachmentModelOwner;
+import com.bergerkiller.bukkit.tc.attachments.control.AttachmentTree;
 import com.bergerkiller.bukkit.tc.attachments.control.CartAttachment;
 import com.bergerkiller.bukkit.tc.attachments.control.CartAttachmentSeat;
 import com.bergerkiller.bukkit.tc.attachments.control.PassengerController;
@@ -42,12 +44,17 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
     public static final int ABSOLUTE_UPDATE_INTERVAL = 200;
     public static final double VELOCITY_SOUND_RADIUS = 16;
     public static final double VELOCITY_SOUND_RADIUS_SQUARED = VELOCITY_SOUND_RADIUS * VELOCITY_SOUND_RADIUS;
+    public static final int VIEWER_DETAIL_UPDATE_INTERVAL = 20;
+    public static final double VIEWER_DETAIL_HYSTERESIS = 0.9; // Viewers leave a detail band 10% closer than its distance
 
     private MinecartMember<?> member = null;
     private final Set<Player> velocityUpdateReceivers = new HashSet<>();
     private final Map<Player, PassengerController> passengerControllers = new HashMap<Player, PassengerController>();
+    private final Map<Player, ViewerDetail> viewerDetail = new HashMap<Player, ViewerDetail>();
 
     private CartAttachment rootAttachment;
+    private volatile AttachmentTree attachmentTree = AttachmentTree.EMPTY;
+    private final Matrix4x4 liveTransform = new Matrix4x4();
     private List<CartAttachmentSeat> seatAttachments = new ArrayList<CartAttachmentSeat>();
 
     public MinecartMemberNetwork() {        
@@ -244,7 +251,9 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
             return;
         }
 
-        makeVisible(this.prepareRootAttachment(), viewer);
+        ViewerDetail detail = this.calcViewerDetail(viewer, null);
+        this.viewerDetail.put(viewer, detail);
+        makeVisible(this.prepareRootAttachment(), viewer, detail);
 
         this.velocityUpdateReceivers.add(viewer);
         this.updateVelocity(viewer);
@@ -257,18 +266,88 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         }
     }
 
+    private static void makeVisible(CartAttachment root, Player viewer, ViewerDetail detail) {
+        if (detail == ViewerDetail.ROOT_ONLY) {
+            root.makeVisible(viewer);
+            root.setReducedRate(viewer, true);
+        } else {
+            makeVisible(root, viewer);
+            if (detail == ViewerDetail.REDUCED) {
+                setReducedRate(root, viewer, true);
+            }
+        }
+    }
+
     @Override
     public void makeHidden(Player viewer, boolean instant) {
         //super.makeHidden(viewer, instant);
 
+        ViewerDetail detail = this.viewerDetail.remove(viewer);
         if (this.rootAttachment != null) {
-            makeHidden(this.rootAttachment, viewer);
+            makeHidden(this.rootAttachment, viewer, detail);
         }
 
         this.velocityUpdateReceivers.remove(viewer);
         this.passengerControllers.remove(viewer);
     }
 
+    private static void makeHidden(CartAttachment root, Player viewer, ViewerDetail detail) {
+        if (detail == ViewerDetail.ROOT_ONLY) {
+            root.makeHidden(viewer);
+        } else {
+            makeHidden(root, viewer);
+        }
+    }
+
+    private static void setReducedRate(CartAttachment attachment, Player viewer, boolean reduced) {
+        attachment.setReducedRate(viewer, reduced);
+        for (CartAttachment child : attachment.children) {
+            setReducedRate(child, viewer, reduced);
+        }
+    }
+
+    /**
+     * Refreshes the level of detail at which each viewer sees the attachments, based on their distance.
+     * Attachments are hidden or shown as viewers move between the distance bands.
+     */
+    public void updateViewerDetail() {
+        if (this.rootAttachment == null || this.viewerDetail.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Player, ViewerDetail> entry : this.viewerDetail.entrySet()) {
+            Player viewer = entry.getKey();
+            ViewerDetail oldDetail = entry.getValue();
+            ViewerDetail newDetail = this.calcViewerDetail(viewer, oldDetail);
+            if (oldDetail == newDetail) {
+                continue;
+            }
+            entry.setValue(newDetail);
+
+            if (newDetail == ViewerDetail.ROOT_ONLY) {
+                // Hide all attachments except the root
+                for (CartAttachment child : this.rootAttachment.children) {
+                    makeHidden(child, viewer);
+                }
+                this.rootAttachment.setReducedRate(viewer, true);
+            } else {
+                // Show all attachments that were hidden before
+                if (oldDetail == ViewerDetail.ROOT_ONLY) {
+                    for (CartAttachment child : this.rootAttachment.children) {
+                        makeVisible(child, viewer);
+                    }
+                }
+                setReducedRate(this.rootAttachment, viewer, newDetail == ViewerDetail.REDUCED);
+            }
+        }
+    }
+
+    private ViewerDetail calcViewerDetail(Player viewer, ViewerDetail current) {
+        if (TCConfig.attachmentReducedDetailDistance <= 0.0 && TCConfig.attachmentRootOnlyDistance <= 0.0) {
+            return ViewerDetail.FULL;
+        }
+        return ViewerDetail.fromDistance(getEntity().loc.distanceSquared(viewer), current);
+    }
+
     private static void makeHidden(CartAttachment attachment, Player viewer) {
         for (CartAttachment child : attachment.children) {
             makeHidden(child, viewer);
@@ -295,6 +374,20 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
                 return;
             }
 
+            // Suspended trains are not updated until something about the minecarts changes
+            if (group.isSuspended()) {
+                for (MinecartMember<?> member : group) {
+                    CommonMinecart<?> memberEntity = member.getEntity();
+                    if (memberEntity.isPositionChanged() || memberEntity.getDataWatcher().isChanged() || memberEntity.hasPassenger()) {
+                        group.wakeUp();
+                        break;
+                    }
+                }
+                if (group.isSuspended()) {
+                    return;
+                }
+            }
+
             // Update the entire group
             int i;
             final int count = group.size();
@@ -314,6 +407,13 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
                 networkControllers[i].tickSelf();
             }
 
+            // Refresh the level of detail at which players see the attachments every now and then
+            if ((CommonUtil.getServerTicks() % VIEWER_DETAIL_UPDATE_INTERVAL) == 0) {
+                for (i = 0; i < count; i++) {
+                    networkControllers[i].updateViewerDetail();
+                }
+            }
+
             // Synchronize to the clients
             if (this.getTicksSinceLocationSync() > ABSOLUTE_UPDATE_INTERVAL) {
                 EntityTrackerEntryHandle.createHandle(this.getHandle()).setTimeSinceLocationSync(0);
@@ -367,7 +467,7 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
      * @return True if interaction was handled
      */
     public boolean handleInteraction(int entityId) {
-        CartAttachment attachment = CartAttachment.findAttachment(this.rootAttachment, entityId);
+        CartAttachment attachment = this.attachmentTree.findAttachment(entityId);
         if (attachment == null) {
             return false;
         }
@@ -380,10 +480,10 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         this.prepareRootAttachment();
 
         try (Timings t = TCTimings.NETWORK_UPDATE_POSITIONS.start()) {
-            CartAttachment.updatePositions(this.rootAttachment, getLiveTransform());
+            this.attachmentTree.updatePositions(getLiveTransform());
         }
         try (Timings t = TCTimings.NETWORK_PERFORM_TICK.start()) {
-            CartAttachment.performTick(this.rootAttachment);
+            this.attachmentTree.performTick();
         }
     }
 
@@ -403,16 +503,23 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
 
         // Perform actual movement, which sends movement update packets
         try (Timings t = TCTimings.NETWORK_PERFORM_MOVEMENT.start()) {
-            CartAttachment.performMovement(this.rootAttachment, absolute);
+            this.attachmentTree.performMovement(absolute);
         }
 
         this.syncPassengers();
     }
 
+    /**
+     * Gets the transformation of the minecart, relative to which the attachments are positioned.
+     * The returned matrix is re-used and updated the next time this method is called.
+     * 
+     * @return live transform
+     */
     public Matrix4x4 getLiveTransform() {
         // Combine translation and rotation information into a 4x4 matrix
         MinecartMember<?> member = this.getMember();
-        Matrix4x4 transform = new Matrix4x4();
+        Matrix4x4 transform = this.liveTransform;
+        transform.setIdentity();
         transform.translate(member.getWheels().getPosition());
         transform.rotate(member.getOrientation());
         transform.rotateZ(member.getRoll());
@@ -463,10 +570,11 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         // Detach old attachments - after this viewers see nothing anymore
         if (this.rootAttachment != null) {
             for (Player oldViewer : this.getViewers()) {
-                makeHidden(this.rootAttachment, oldViewer);
+                makeHidden(this.rootAttachment, oldViewer, this.viewerDetail.get(oldViewer));
             }
             CartAttachment.deinitialize(this.rootAttachment);
             this.rootAttachment = null;
+            this.attachmentTree = AttachmentTree.EMPTY;
         }
 
         // Clear to reset passenger controllers
@@ -474,12 +582,14 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
 
         // Attach new attachments - after this viewers see everything but passengers are not 'in'
         this.rootAttachment = CartAttachment.initialize(this, model.getConfig());
+        this.attachmentTree = new AttachmentTree(this.rootAttachment);
         
         this.seatAttachments.clear();
         this.discoverSeats(this.rootAttachment);
 
         for (Player viewer : this.getViewers()) {
-            makeVisible(this.rootAttachment, viewer);
+            ViewerDetail detail = this.viewerDetail.get(viewer);
+            makeVisible(this.rootAttachment, viewer, (detail == null) ? ViewerDetail.FULL : detail);
         }
 
         // Let all passengers re-enter us
@@ -511,4 +621,42 @@ public class MinecartMemberNetwork extends EntityNetworkController<CommonMinecar
         
         //model.log();
     }
+
+    /**
+     * The level of detail at which a viewer sees the attachments of a minecart
+     */
+    static enum ViewerDetail {
+        /** All attachments are shown, and all movement is sent */
+        FULL,
+        /** All attachments are shown, but movement is only sent every so many ticks */
+        REDUCED,
+        /** Only the root attachment is shown, and movement is only sent every so many ticks */
+        ROOT_ONLY;
+
+        /**
+         * Gets the level of detail for a viewer at a distance, using the configured distance bands.
+         * A viewer must come closer than a band's distance by the hysteresis factor to leave it again.
+         *
+         * @param distanceSquared squared distance between the viewer and the minecart
+         * @param current level of detail the viewer sees at right now, null if not yet viewing
+         * @return new level of detail
+         */
+        public static ViewerDetail fromDistance(double distanceSquared, ViewerDetail current) {
+            double rootOnlyDistance = TCConfig.attachmentRootOnlyDistance;
+            double reducedDistance = TCConfig.attachmentReducedDetailDistance;
+            if (current == ROOT_ONLY) {
+                rootOnlyDistance *= VIEWER_DETAIL_HYSTERESIS;
+                reducedDistance *= VIEWER_DETAIL_HYSTERESIS;
+            } else if (current == REDUCED) {
+                reducedDistance *= VIEWER_DETAIL_HYSTERESIS;
+            }
+            if (rootOnlyDistance > 0.0 && distanceSquared > (rootOnlyDistance * rootOnlyDistance)) {
+                return ROOT_ONLY;
+            } else if (reducedDistance > 0.0 && distanceSquared > (reducedDistance * reducedDistance)) {
+                return REDUCED;
+            } else {
+                return FULL;
+            }
+        }
+    }
 }
@@ -20,6 +20,29 @@ public class ActionTrackerGroup extends ActionTracker {
         return owner;
     }
 
+    /**
+     * Checks whether this group, or any of the members of this group, have an action set
+     *
+     * @return True if an action is set
+     */
+    public boolean hasAnyAction() {
+        if (this.hasAction()) {
+            return true;
+        }
+        for (MinecartMember<?> member : this.owner) {
+            if (member.getActions().hasAction()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public <T extends Action> T addAction(T action) {
+        this.owner.wakeUp();
+        return super.addAction(action);
+    }
+
     @Override
     public void doTick() {
         super.doTick();
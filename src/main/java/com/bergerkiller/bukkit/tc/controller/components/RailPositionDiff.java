@@ -0,0 +1,117 @@
+package com.bergerkiller.bukkit.tc.controller.components;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+
+/**
+ * Indexes rails by their (packed) block position, and matches the rails a train occupied
+ * before a refresh with the rails it occupies after. Rails at the same position are matched,
+ * so only rails that are entered or left are added or removed.
+ * When more than one rails is at the same position, they are matched in order.
+ *
+ * @param <R> type of rails information
+ */
+abstract class RailPositionDiff<R> {
+    private final LongHashMap<R> prevRailsByPosition = new LongHashMap<R>();
+    private final ArrayList<R> prevRailsDuplicates = new ArrayList<R>();
+
+    /**
+     * Gets the packed block position of rails
+     *
+     * @param rail
+     * @return packed block position
+     */
+    protected abstract long getKey(R rail);
+
+    /**
+     * Called when rails were occupied before and after
+     *
+     * @param oldRail previous rails information
+     * @param newRail new rails information at the same position
+     */
+    protected abstract void onMatched(R oldRail, R newRail);
+
+    /**
+     * Called when rails are newly occupied
+     *
+     * @param newRail
+     */
+    protected abstract void onAdded(R newRail);
+
+    /**
+     * Called when rails are no longer occupied
+     *
+     * @param oldRail
+     */
+    protected abstract void onRemoved(R oldRail);
+
+    /**
+     * Indexes rails by position. Only the first rails found at every position is stored.
+     *
+     * @param rails to index
+     * @param railsByPosition map to fill, is cleared first
+     */
+    public void index(List<R> rails, LongHashMap<R> railsByPosition) {
+        railsByPosition.clear();
+        for (R rail : rails) {
+            long key = getKey(rail);
+            if (!railsByPosition.contains(key)) {
+                railsByPosition.put(key, rail);
+            }
+        }
+    }
+
+    /**
+     * Matches the previous rails with the new rails, calling {@link #onMatched(Object, Object)},
+     * {@link #onAdded(Object)} and {@link #onRemoved(Object)} for all of them.
+     *
+     * @param prevRails rails occupied before
+     * @param rails rails occupied now
+     */
+    public void apply(List<R> prevRails, List<R> rails) {
+        // Index the previous rails by position. When more than one rails is at the same position,
+        // which happens rarely, the others are stored in a list in order.
+        for (R oldRail : prevRails) {
+            long key = getKey(oldRail);
+            if (this.prevRailsByPosition.contains(key)) {
+                this.prevRailsDuplicates.add(oldRail);
+            } else {
+                this.prevRailsByPosition.put(key, oldRail);
+            }
+        }
+
+        // Match the new rails with the previous rails at the same position
+        for (R newRail : rails) {
+            long key = getKey(newRail);
+            R oldRail = this.prevRailsByPosition.remove(key);
+            if (oldRail == null && !this.prevRailsDuplicates.isEmpty()) {
+                for (int i = 0; i < this.prevRailsDuplicates.size(); i++) {
+                    if (getKey(this.prevRailsDuplicates.get(i)) == key) {
+                        oldRail = this.prevRailsDuplicates.remove(i);
+                        break;
+                    }
+                }
+            }
+            if (oldRail != null) {
+                onMatched(oldRail, newRail);
+            } else {
+                onAdded(newRail);
+            }
+        }
+
+        // Previous rails that were not matched are no longer occupied
+        for (R oldRail : prevRails) {
+            long key = getKey(oldRail);
+            if (this.prevRailsByPosition.get(key) == oldRail) {
+                this.prevRailsByPosition.remove(key);
+                onRemoved(oldRail);
+            }
+        }
+        for (R oldRail : this.prevRailsDuplicates) {
+            onRemoved(oldRail);
+        }
+        this.prevRailsDuplicates.clear();
+    }
+}
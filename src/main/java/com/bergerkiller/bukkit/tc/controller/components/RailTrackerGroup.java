@@ -13,6 +13,7 @@ import org.bukkit.util.Vector;
 import com.bergerkiller.bukkit.common.Timings;
 import com.bergerkiller.bukkit.common.bases.IntVector3;
 import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
 import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.TCTimings;
 import com.bergerkiller.bukkit.tc.Util;
@@ -31,9 +32,30 @@ import com.bergerkiller.bukkit.tc.utils.TrackWalkingPoint;
  */
 public class RailTrackerGroup extends RailTracker {
     private final MinecartGroup owner;
-    private final ArrayList<TrackedRail> railsBuffer = new ArrayList<TrackedRail>();
     private final ArrayList<TrackedRail> prevRails = new ArrayList<TrackedRail>();
     private final ArrayList<TrackedRail> rails = new ArrayList<TrackedRail>();
+    private final LongHashMap<TrackedRail> railsByPosition = new LongHashMap<TrackedRail>();
+    private final RailPositionDiff<TrackedRail> railsDiff = new RailPositionDiff<TrackedRail>() {
+        @Override
+        protected long getKey(TrackedRail rail) {
+            return Util.packBlockPosition(rail.position.x, rail.position.y, rail.position.z);
+        }
+
+        @Override
+        protected void onMatched(TrackedRail oldRail, TrackedRail newRail) {
+            RailMemberCache.changeMember(newRail.block, oldRail.member, newRail.member);
+        }
+
+        @Override
+        protected void onAdded(TrackedRail newRail) {
+            RailMemberCache.addBlock(newRail.block, newRail.member);
+        }
+
+        @Override
+        protected void onRemoved(TrackedRail oldRail) {
+            RailMemberCache.removeBlock(oldRail.block, oldRail.member);
+        }
+    };
 
     public RailTrackerGroup(MinecartGroup owner) {
         this.owner = owner;
@@ -61,6 +83,7 @@ public class RailTrackerGroup extends RailTracker {
                 }
             }
         }
+        this.rebuildIndex();
     }
 
     /**
@@ -100,13 +123,13 @@ public class RailTrackerGroup extends RailTracker {
      * @return the Minecart Member, or null if not found
      */
     public MinecartMember<?> getMemberFromRails(IntVector3 railsBlockPosition) {
-        //TODO: Is keeping a hashmap up to date a good idea? This loop works just fine, too.
-        for (TrackedRail info : rails) {
-            if (info.position.equals(railsBlockPosition)) {
-                return info.member;
-            }
-        }
-        return null;
+        TrackedRail info = this.railsByPosition.get(Util.packBlockPosition(railsBlockPosition.x, railsBlockPosition.y, railsBlockPosition.z));
+        return (info == null) ? null : info.member;
+    }
+
+    // Indexes the rails by position, storing the first rails found at every position
+    private void rebuildIndex() {
+        this.railsDiff.index(this.rails, this.railsByPosition);
     }
 
     /**
@@ -164,6 +187,7 @@ public class RailTrackerGroup extends RailTracker {
             }
 
             Collections.reverse(this.rails);
+            this.rebuildIndex();
 
             // Log the rail information
             /*
@@ -181,27 +205,7 @@ public class RailTrackerGroup extends RailTracker {
 
         // Remove all previous rails from the rail member cache, and add the new rails
         try (Timings t = TCTimings.RAILMEMBERCACHE.start()) {
-            this.railsBuffer.clear();
-            this.railsBuffer.addAll(this.prevRails);
-            for (TrackedRail newRail : this.rails) {
-                boolean found = false;
-                Iterator<TrackedRail> tmpIter = this.railsBuffer.iterator();
-                while (tmpIter.hasNext()) {
-                    TrackedRail oldRail = tmpIter.next();
-                    if (oldRail.position.equals(newRail.position)) {
-                        tmpIter.remove();
-                        RailMemberCache.changeMember(newRail.block, oldRail.member, newRail.member);
-                        found = true;
-                        break;
-                    }
-                }
-                if (!found) {
-                    RailMemberCache.addBlock(newRail.block, newRail.member);
-                }
-            }
-            for (TrackedRail oldRail : this.railsBuffer) {
-                RailMemberCache.removeBlock(oldRail.block, oldRail.member);
-            }
+            this.railsDiff.apply(this.prevRails, this.rails);
 
             // Alternative: remove and re-add all the members
             /*
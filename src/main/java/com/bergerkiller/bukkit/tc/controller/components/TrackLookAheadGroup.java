@@ -0,0 +1,278 @@
+package com.bergerkiller.bukkit.tc.controller.components;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+
+import com.bergerkiller.bukkit.common.bases.IntVector3;
+import com.bergerkiller.bukkit.common.bases.mutable.VectorAbstract;
+import com.bergerkiller.bukkit.common.utils.BlockUtil;
+import com.bergerkiller.bukkit.common.utils.CommonUtil;
+import com.bergerkiller.bukkit.tc.cache.RailMemberCache;
+import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
+import com.bergerkiller.bukkit.tc.controller.MinecartMember;
+import com.bergerkiller.bukkit.tc.rails.type.RailType;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZone;
+import com.bergerkiller.bukkit.tc.signactions.mutex.MutexZoneCache;
+import com.bergerkiller.bukkit.tc.utils.TrackWalkingPoint;
+
+/**
+ * Keeps track of the rails ahead of the head of a train, as used for wait distance and mutex zones.
+ * The rails walked are remembered for the remainder of the tick, so that physics updates
+ * done several times per tick only have to walk the rails the head moved onto since.
+ * When the head moves onto the next rails, the rails behind it are dropped from the start,
+ * and when more distance is asked for, rails are walked from where walking last stopped.
+ * While the head stays on the same rails, only its position on the path of those rails is updated.
+ * The mutex zones and minecarts found on the rails are remembered as well, as these only change
+ * when other trains update. All of it is discarded the next tick, in case rails ahead were changed or switched.
+ */
+public class TrackLookAheadGroup {
+    private final MinecartGroup owner;
+    private final ArrayList<Step> steps = new ArrayList<Step>();
+    private final ArrayList<Step> result = new ArrayList<Step>();
+    private final Step head = new Step(null, 0.0);
+    private final RailPath.Position headEnd = new RailPath.Position();
+    private MinecartMember<?> headMember = null;
+    private RailPath headPath = null; // path of the rails the head is on, null when the head must be found again
+    private TrackWalkingPoint walker = null;
+    private int tick = -1;
+
+    public TrackLookAheadGroup(MinecartGroup owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Discards all rails walked, forcing them to be walked again next time
+     */
+    public void reset() {
+        this.steps.clear();
+        this.walker = null;
+        this.headMember = null;
+        this.headPath = null;
+    }
+
+    /**
+     * Walks the rails ahead of the head of the train. The first step is the position of the head.
+     * Every step after it is the position where the next rails is entered. Walking stops
+     * with the first step beyond the distance specified.<br>
+     * <br>
+     * The returned list is re-used and is only valid until the next time this method is called.
+     *
+     * @param distance to walk
+     * @return steps walked, empty if the head is not on rails
+     */
+    public List<Step> walk(double distance) {
+        this.result.clear();
+
+        // Discard everything walked in a previous tick
+        int serverTicks = CommonUtil.getServerTicks();
+        if (serverTicks != this.tick) {
+            this.tick = serverTicks;
+            this.reset();
+        }
+
+        // When the head is still on the same rails, only its position on the path of the rails changed
+        // Otherwise find the rails the head is on, and walk from there to where the next rails is entered
+        double headToNext;
+        MinecartMember<?> headMember = this.owner.head();
+        if (this.isHeadOnSameRails(headMember)) {
+            headToNext = this.moveHead(headMember);
+            this.resetHead(false);
+        } else {
+            this.headPath = null;
+            this.headMember = headMember;
+            this.head.state = headMember.discoverRail();
+            if (this.head.state.railType() == RailType.NONE) {
+                return this.result;
+            }
+
+            TrackWalkingPoint iter = new TrackWalkingPoint(this.head.state);
+            RailPath headPath = iter.currentRailPath;
+            if (!iter.moveFull() || !iter.moveFull()) {
+                this.resetHead(true);
+                this.result.add(this.head);
+                return this.result;
+            }
+
+            // Find where the next rails is entered in the rails walked before, and drop all steps before it
+            // If it cannot be found (the head turned around, or changed rails) walk all over again
+            if (!this.trimSteps(this.head.state.railBlock(), iter.state)) {
+                this.steps.clear();
+                this.steps.add(new Step(iter.state.clone(), iter.movedTotal));
+                this.walker = iter;
+            }
+            this.headPath = headPath;
+            headToNext = iter.movedTotal;
+            this.resetHead(true);
+        }
+        this.result.add(this.head);
+
+        // Add the steps within the distance, walking further when needed
+        double offset = headToNext - this.steps.get(0).distance;
+        double movedTotal = 0.0;
+        for (int i = 0; movedTotal <= distance; i++) {
+            if (i == this.steps.size()) {
+                if (this.walker == null || !this.walker.moveFull()) {
+                    this.walker = null; // End of the rails
+                    break;
+                }
+                this.steps.add(new Step(this.walker.state.clone(), this.walker.movedTotal));
+            }
+            Step step = this.steps.get(i);
+            movedTotal = step.distance + offset;
+            step.movedTotal = movedTotal;
+            this.result.add(step);
+        }
+        return this.result;
+    }
+
+    // Checks whether the head is still on the rails walked from before, moving in the same direction
+    private boolean isHeadOnSameRails(MinecartMember<?> headMember) {
+        if (this.headPath == null || this.headMember != headMember || this.steps.isEmpty()) {
+            return false;
+        }
+        if (!BlockUtil.equals(headMember.getRailTracker().getBlock(), this.head.state.railBlock())) {
+            return false;
+        }
+        VectorAbstract vel = headMember.getEntity().vel;
+        return this.head.state.position().motDot(vel.getX(), vel.getY(), vel.getZ()) >= 0.0;
+    }
+
+    // Snaps the head state onto the path of the rails at the current position of the head
+    // Returns the distance from the head to where the next rails is entered
+    private double moveHead(MinecartMember<?> headMember) {
+        RailState state = this.head.state;
+        state.position().setLocation(headMember.getEntity().loc);
+        this.headPath.snap(state.position(), state.railBlock());
+        state.position().copyTo(this.headEnd);
+        return this.headPath.move(this.headEnd, state.railBlock(), Double.MAX_VALUE);
+    }
+
+    private void resetHead(boolean railsChanged) {
+        this.head.movedTotal = 0.0;
+        this.head.location = null;
+        if (railsChanged) {
+            this.head.mutexZone = null;
+            this.head.mutexZoneFound = false;
+            this.head.members = null;
+        }
+    }
+
+    /**
+     * Gets the steps walked before, starting with the step where the head enters the next rails
+     *
+     * @return steps
+     */
+    List<Step> getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Drops all the steps walked before the step where the head enters the next rails.
+     * This must be the same position and direction, entered from the rails the head is on.
+     *
+     * @param headRail rails block the head is on
+     * @param entered rail state where the head enters the next rails
+     * @return True if the step was found and the steps before it were dropped, False if it was not found
+     */
+    boolean trimSteps(Block headRail, RailState entered) {
+        int index = this.find(headRail, entered);
+        if (index == -1) {
+            return false;
+        }
+        if (index > 0) {
+            this.steps.subList(0, index).clear();
+        }
+        return true;
+    }
+
+    private int find(Block headRail, RailState entered) {
+        RailPath.Position enterPos = entered.position();
+        for (int i = 0; i < this.steps.size(); i++) {
+            RailState state = this.steps.get(i).state;
+            if (!BlockUtil.equals(state.railBlock(), entered.railBlock())) {
+                continue;
+            }
+
+            // The rails before it must be the rails the head is on, or it could be a different route
+            if (i > 0 && !BlockUtil.equals(this.steps.get(i - 1).state.railBlock(), headRail)) {
+                continue;
+            }
+
+            // Must be entered at the same position
+            RailPath.Position pos = state.position();
+            double dx = pos.posX - enterPos.posX;
+            double dy = pos.posY - enterPos.posY;
+            double dz = pos.posZ - enterPos.posZ;
+            if ((dx * dx + dy * dy + dz * dz) < 1e-6 && pos.motDot(enterPos) > 0.0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A single step walked along the rails ahead of the train
+     */
+    public static final class Step {
+        /**
+         * Rail state at this step
+         */
+        public RailState state;
+        /**
+         * Distance from the head of the train to this step
+         */
+        public double movedTotal;
+        private final double distance;
+        private Location location = null;
+        private MutexZone mutexZone = null;
+        private boolean mutexZoneFound = false;
+        private Collection<MinecartMember<?>> members = null;
+
+        Step(RailState state, double distance) {
+            this.state = state;
+            this.distance = distance;
+        }
+
+        /**
+         * Gets the position of this step as a Location. Must not be modified.
+         *
+         * @return position location
+         */
+        public Location getLocation() {
+            if (this.location == null) {
+                this.location = this.state.positionLocation();
+            }
+            return this.location;
+        }
+
+        /**
+         * Gets the mutex zone at the rails of this step
+         *
+         * @return mutex zone, null if there is none
+         */
+        public MutexZone getMutexZone() {
+            if (!this.mutexZoneFound) {
+                Block railBlock = this.state.railBlock();
+                this.mutexZone = MutexZoneCache.find(railBlock.getWorld().getUID(), new IntVector3(railBlock));
+                this.mutexZoneFound = true;
+            }
+            return this.mutexZone;
+        }
+
+        /**
+         * Gets all the minecarts on the rails of this step
+         *
+         * @return members on the rails
+         */
+        public Collection<MinecartMember<?>> getMembers() {
+            if (this.members == null) {
+                this.members = RailMemberCache.findAll(this.state.railBlock());
+            }
+            return this.members;
+        }
+    }
+}
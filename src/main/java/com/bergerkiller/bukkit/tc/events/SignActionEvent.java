@@ -49,6 +49,7 @@ public class SignActionEvent extends Event implements Cancellable {
     private BlockFace facing;
     private final SignActionHeader header;
     private final Sign sign;
+    private final RailSignCache.TrackedSign trackedSign;
     private BlockFace[] watchedDirections;
     private Block railsblock;
     private SignActionType actionType;
@@ -104,12 +105,17 @@ public class SignActionEvent extends Event implements Cancellable {
     }
 
     public SignActionEvent(RailSignCache.TrackedSign trackedSign) {
-        this(trackedSign.signBlock, trackedSign.sign, trackedSign.railBlock);
+        this(trackedSign.signBlock, trackedSign.sign, trackedSign.railBlock, trackedSign);
     }
 
     public SignActionEvent(final Block signblock, final Sign sign, Block railsblock) {
+        this(signblock, sign, railsblock, null);
+    }
+
+    private SignActionEvent(final Block signblock, final Sign sign, Block railsblock, RailSignCache.TrackedSign trackedSign) {
         this.signblock = signblock;
         this.sign = sign;
+        this.trackedSign = (sign == null) ? null : trackedSign;
         this.railsblock = railsblock;
         this.railschecked = this.railsblock != null;
         this.actionType = SignActionType.NONE;
@@ -120,7 +126,12 @@ public class SignActionEvent extends Event implements Cancellable {
             this.watchedDirections = FaceUtil.AXIS;
         } else {
             // Sign available - initialize the sign
-            this.header = SignActionHeader.parseFromEvent(this);
+            // Tracked signs remember the header, so it does not have to be parsed every time
+            if (this.trackedSign != null) {
+                this.header = this.trackedSign.getHeader();
+            } else {
+                this.header = SignActionHeader.parseFromEvent(this);
+            }
             if (this.header.isLegacyConverted() && this.header.isValid()) {
                 this.setLine(0, this.header.toString());
             }
@@ -398,6 +409,7 @@ public class SignActionEvent extends Event implements Cancellable {
         MinecartGroupStore.notifyPhysicsChange();
 
         Block railBlock = this.getRails();
+        MinecartGroupStore.wakeUpNear(railBlock);
         RailType railType = RailType.getType(railBlock);
 
         // If from and to are the same, the train is launched back towards where it came
@@ -983,6 +995,18 @@ public class SignActionEvent extends Event implements Cancellable {
     public void setLine(int index, String line) {
         this.sign.setLine(index, line);
         this.sign.update(true);
+        if (this.trackedSign != null) {
+            this.trackedSign.onTextChanged();
+        }
+    }
+
+    /**
+     * Gets the tracked sign of the rails this event was created for, if it was
+     * 
+     * @return tracked sign, or null if this event was not created for a tracked sign
+     */
+    public RailSignCache.TrackedSign getTrackedSign() {
+        return this.trackedSign;
     }
 
     /**
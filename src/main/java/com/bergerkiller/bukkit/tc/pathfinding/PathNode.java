@@ -7,6 +7,7 @@ import com.bergerkiller.bukkit.common.config.CompressedDataReader;
 import com.bergerkiller.bukkit.common.config.CompressedDataWriter;
 import com.bergerkiller.bukkit.common.utils.LogicUtil;
 import com.bergerkiller.bukkit.common.utils.StringUtil;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.events.SignActionEvent;
 
 import org.bukkit.block.Block;
@@ -21,12 +22,12 @@ public class PathNode {
     private static boolean hasChanges = false;
     private static BlockMap<PathNode> blockNodes = new BlockMap<>();
     private static Map<String, PathNode> nodes = new HashMap<>();
+    private static PathRoutingGraph routingGraph = null;
+    private static Map<PathNode, PathRoutingTable> routingTables = new HashMap<>();
     public final BlockLocation location;
     private final Set<String> names = new HashSet<>();
     private final List<PathConnection> neighbors = new ArrayList<>(3);
     public int index;
-    private double lastDistance;
-    private PathConnection lastTaken;
     private boolean isRailSwitchable;
 
     private PathNode(final String name, final BlockLocation location) {
@@ -41,6 +42,8 @@ public class PathNode {
         nodes.clear();
         blockNodes.clear();
         hasChanges = true;
+        routingGraph = null;
+        routingTables.clear();
     }
 
     /**
@@ -135,29 +138,79 @@ public class PathNode {
         return node;
     }
 
-    private static double getDistanceTo(PathConnection from, PathConnection conn, double currentDistance, double maxDistance, PathNode destination) {
-        final PathNode node = conn.destination;
-        currentDistance += conn.distance;
-        // Consider taking turns as one distance longer
-        // This avoids the excessive use of turns in 2-way 'X' intersections
-        if (destination == node) {
-            return currentDistance;
+    /**
+     * Gets a compact snapshot of all nodes and their connections, used for finding routes.
+     * The snapshot is re-created when connections between nodes have changed since.
+     * Must be called on the main thread.
+     *
+     * @return routing graph
+     */
+    public static PathRoutingGraph getRoutingGraph() {
+        PathRoutingGraph graph = routingGraph;
+        if (graph == null) {
+            graph = new PathRoutingGraph(nodes.values());
+            routingGraph = graph;
+        }
+        return graph;
+    }
+
+    /**
+     * Gets all nodes trains can be sent to, which excludes nodes that are only a switcher.
+     * Must be called on the main thread.
+     *
+     * @return destination nodes
+     */
+    static List<PathNode> getDestinationNodes() {
+        Set<PathNode> destinations = Collections.newSetFromMap(new IdentityHashMap<PathNode, Boolean>());
+        for (PathNode node : nodes.values()) {
+            if (!node.containsOnlySwitcher()) {
+                destinations.add(node);
+            }
         }
-        // Initial distance check before continuing
-        if (node.lastDistance < currentDistance || currentDistance > maxDistance) {
-            return Integer.MAX_VALUE;
+        return new ArrayList<PathNode>(destinations);
+    }
+
+    /**
+     * Stores routing tables that were created from a routing graph on another thread.
+     * If connections between nodes changed since the graph was created, the tables are discarded.
+     * Must be called on the main thread.
+     *
+     * @param graph the tables were created from
+     * @param tables to store
+     * @return True if the tables were stored, False if they were out of date
+     */
+    static boolean storeRoutingTables(PathRoutingGraph graph, Collection<PathRoutingTable> tables) {
+        if (routingGraph != graph) {
+            return false;
+        }
+        for (PathRoutingTable table : tables) {
+            routingTables.put(table.getDestination(), table);
+        }
+        return true;
+    }
+
+    // Called when a connection between two nodes is added, discards routes that may now be shorter
+    private static void onConnectionAdded(PathNode from, PathConnection connection) {
+        hasChanges = true;
+        routingGraph = null;
+        Iterator<PathRoutingTable> iter = routingTables.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().isChangedByAdd(from, connection)) {
+                iter.remove();
+            }
         }
-        node.lastDistance = currentDistance;
-        // Check all neighbors and obtain the lowest distance recursively
-        double distance;
-        for (PathConnection connection : node.neighbors) {
-            distance = getDistanceTo(conn, connection, currentDistance, maxDistance, destination);
-            if (maxDistance > distance) {
-                maxDistance = distance;
-                node.lastTaken = connection;
+    }
+
+    // Called when a connection between two nodes is removed, discards routes that used it
+    private static void onConnectionRemoved(PathNode from, PathConnection connection) {
+        hasChanges = true;
+        routingGraph = null;
+        Iterator<PathRoutingTable> iter = routingTables.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().isChangedByRemove(from, connection)) {
+                iter.remove();
             }
         }
-        return maxDistance;
     }
 
     public static void deinit() {
@@ -191,6 +244,8 @@ public class PathNode {
             }
         }.read();
         hasChanges = false;
+        routingGraph = null;
+        routingTables.clear();
     }
 
     public static void save(boolean autosave, String filename) {
@@ -239,31 +294,23 @@ public class PathNode {
     }
 
     /**
-     * Tries to find a connection from this node to the node specified
+     * Tries to find a connection from this node to the node specified.
+     * While the routing table of the destination is being computed in the background,
+     * only the route from this node is searched for, instead of creating the full table.
      *
      * @param destination node to find
      * @return A connection, or null if none could be found
      */
     public PathConnection findConnection(PathNode destination) {
-        for (PathNode node : nodes.values()) {
-            node.lastDistance = Integer.MAX_VALUE;
-            node.lastTaken = null;
-        }
-        double maxDistance = Integer.MAX_VALUE;
-        double distance;
-        final PathConnection from = new PathConnection(this, 0, "");
-        for (PathConnection connection : this.neighbors) {
-            distance = getDistanceTo(from, connection, 0.0, maxDistance, destination);
-            if (maxDistance > distance) {
-                maxDistance = distance;
-                this.lastTaken = connection;
+        PathRoutingTable table = routingTables.get(destination);
+        if (table == null) {
+            if (PathProvider.isComputingRoutes()) {
+                return getRoutingGraph().findConnection(this, destination, TCConfig.pathFindingHeuristic);
             }
+            table = getRoutingGraph().createRoutingTable(destination);
+            routingTables.put(destination, table);
         }
-        if (this.lastTaken == null) {
-            return null;
-        } else {
-            return new PathConnection(destination, maxDistance, this.lastTaken.junctionName);
-        }
+        return table.findConnection(this);
     }
 
     /**
@@ -273,17 +320,16 @@ public class PathNode {
      * @return the route taken, or an empty array if none could be found
      */
     public PathNode[] findRoute(PathNode destination) {
-        if (findConnection(destination) == null) {
-            return new PathNode[0];
-        }
-        List<PathNode> route = new ArrayList<>();
-        route.add(this);
-        PathConnection conn = this.lastTaken;
-        while (conn != null) {
-            route.add(conn.destination);
-            conn = conn.destination.lastTaken;
-        }
-        return route.toArray(new PathNode[0]);
+        return getRoutingGraph().findRoute(this, destination, TCConfig.pathFindingHeuristic);
+    }
+
+    /**
+     * Gets all the connections leading away from this node
+     *
+     * @return neighbour connections
+     */
+    public List<PathConnection> getNeighbours() {
+        return Collections.unmodifiableList(this.neighbors);
     }
 
     /**
@@ -306,6 +352,7 @@ public class PathNode {
                 } else {
                     // Higher distance is contained - remove old element
                     iter.remove();
+                    onConnectionRemoved(this, conn);
                     break;
                 }
             }
@@ -313,21 +360,27 @@ public class PathNode {
         // Add a new one
         conn = new PathConnection(to, distance, junctionName);
         this.neighbors.add(conn);
-        hasChanges = true;
+        onConnectionAdded(this, conn);
         return conn;
     }
 
     public void clear() {
+        for (PathConnection conn : this.neighbors) {
+            onConnectionRemoved(this, conn);
+        }
         this.neighbors.clear();
         for (PathNode node : nodes.values()) {
             Iterator<PathConnection> iter = node.neighbors.iterator();
             while (iter.hasNext()) {
-                if (iter.next().destination == this) {
+                PathConnection conn = iter.next();
+                if (conn.destination == this) {
                     iter.remove();
+                    onConnectionRemoved(node, conn);
                 }
             }
         }
         hasChanges = true;
+        routingGraph = null;
     }
 
     /**
@@ -360,6 +413,7 @@ public class PathNode {
      */
     public void remove() {
         this.clear();
+        routingTables.remove(this);
         //remove globally
         for (String name : this.names) {
             nodes.remove(name);
@@ -2,6 +2,7 @@ package com.bergerkiller.bukkit.tc.pathfinding;
 
 import com.bergerkiller.bukkit.common.BlockLocation;
 import com.bergerkiller.bukkit.common.Task;
+import com.bergerkiller.bukkit.tc.TCConfig;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.cache.RailTypeCache;
@@ -19,20 +20,25 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class PathProvider extends Task {
     private static final int STEP_COUNT = 100; // Steps performed per timing check
-    private static final int MAX_PROCESSING_PER_TICK = 30; // Maximum processing time in Ms per tick
     public static boolean DEBUG_MODE = false;
     private static PathProvider task;
     private Queue<BlockLocation> pendingDiscovery = new LinkedList<BlockLocation>();
     private Set<PathNode> pendingNodes = new LinkedHashSet<>();
     private Queue<PathFindOperation> pendingOperations = new LinkedList<>();
+    private boolean routesChanged = false; // whether nodes were discovered since routes were last computed
+    private PathRoutingGraph routesGraph = null; // graph routes are being computed of asynchronously
+    private CompletableFuture<List<PathRoutingTable>> routesFuture = null;
 
     private PathProvider(JavaPlugin plugin) {
         super(plugin);
@@ -76,12 +82,24 @@ public class PathProvider extends Task {
     }
 
     /**
-     * Checks whether this Path Provider is currently busy processing path finding
+     * Checks whether this Path Provider is currently busy processing path finding.
+     * Routes that are still being computed in the background are not included, as trains
+     * can find their route on the main thread until those are done.
      *
      * @return True if processing is being performed, False if not
      */
     public static boolean isProcessing() {
-        return task != null && (!task.pendingOperations.isEmpty() || !task.pendingNodes.isEmpty());
+        return task != null && (!task.pendingOperations.isEmpty() || !task.pendingNodes.isEmpty() || !task.pendingDiscovery.isEmpty());
+    }
+
+    /**
+     * Checks whether the routes between all destinations are being computed in the background.
+     * Until that is done, the routing tables of destinations can be missing.
+     *
+     * @return True if routes are being computed, False if not
+     */
+    public static boolean isComputingRoutes() {
+        return task != null && task.routesFuture != null;
     }
 
     @Override
@@ -94,13 +112,70 @@ public class PathProvider extends Task {
                 while (operation.next()) ;
             }
         }
+        this.routesFuture = null; // Routes are computed again on demand
+        this.routesGraph = null;
         return super.stop();
     }
 
     @Override
     public void run() {
+        // Store rails and signs discovered while walking the tracks in a separate temporary cache
+        // This prevents polluting the caches used by trains with lots of temporary block data
+        RailTypeCache.setOverlayEnabled(true);
+        RailSignCache.setOverlayEnabled(true);
+        try {
+            this.process();
+        } finally {
+            RailTypeCache.setOverlayEnabled(false);
+            RailSignCache.setOverlayEnabled(false);
+        }
+
+        // When all done, free up the memory used by the temporary cache
+        // Then compute the routes between all destinations asynchronously
+        if (this.pendingOperations.isEmpty() && this.pendingNodes.isEmpty() && this.pendingDiscovery.isEmpty()) {
+            RailTypeCache.resetOverlay();
+            RailSignCache.resetOverlay();
+            this.updateRoutes();
+        }
+    }
+
+    // Finds the routes to all destinations on another thread, using a snapshot of the nodes made on the main thread
+    private void updateRoutes() {
+        if (this.routesFuture != null) {
+            if (!this.routesFuture.isDone()) {
+                return; // Still busy
+            }
+            try {
+                if (!PathNode.storeRoutingTables(this.routesGraph, this.routesFuture.join())) {
+                    this.routesChanged = true; // Nodes changed while computing, try again
+                }
+            } catch (Throwable t) {
+                TrainCarts.plugin.log(Level.SEVERE, "Failed to compute the routes between destinations:");
+                TrainCarts.plugin.handle(t);
+            }
+            this.routesFuture = null;
+            this.routesGraph = null;
+        }
+        if (this.routesChanged) {
+            this.routesChanged = false;
+            final PathRoutingGraph graph = PathNode.getRoutingGraph();
+            final List<PathNode> destinations = PathNode.getDestinationNodes();
+            this.routesGraph = graph;
+            this.routesFuture = CompletableFuture.supplyAsync(() -> {
+                List<PathRoutingTable> tables = new ArrayList<PathRoutingTable>(destinations.size());
+                for (PathNode destination : destinations) {
+                    tables.add(graph.createRoutingTable(destination));
+                }
+                return tables;
+            });
+        }
+    }
+
+    private void process() {
+        final long startTime = System.nanoTime();
+        final long maxProcessingTime = TCConfig.pathFindingMaxProcessingPerTick * 1000000L;
         if (this.pendingOperations.isEmpty() && !this.pendingDiscovery.isEmpty()) {
-            addNewlyDiscovered();
+            addNewlyDiscovered(startTime + maxProcessingTime);
         }
         if (this.pendingOperations.isEmpty()) {
             addPendingNodes();
@@ -108,9 +183,9 @@ public class PathProvider extends Task {
         if (this.pendingOperations.isEmpty()) {
             return;
         }
+        this.routesChanged = true;
         int i;
         boolean done;
-        final long startTime = System.currentTimeMillis();
         while (!this.pendingOperations.isEmpty()) {
             PathFindOperation operation = this.pendingOperations.peek();
             done = false;
@@ -119,29 +194,29 @@ public class PathProvider extends Task {
                         " INTO " + operation.getJunctionName());
             }
             // Perform the operations in steps
-            // Not per step, because System.currentTimeMillis is not entirely cheap!
+            // Not per step, because System.nanoTime is not entirely cheap!
             do {
                 for (i = 0; i < STEP_COUNT && !done; i++) {
                     done = operation.next();
                 }
-            } while (!done && (System.currentTimeMillis() - startTime) <= MAX_PROCESSING_PER_TICK);
+            } while (!done && (System.nanoTime() - startTime) <= maxProcessingTime);
             if (done) {
                 this.pendingOperations.poll();
             } else {
                 break; // Ran out of time
             }
         }
-
-        // Important: wipe any rail and sign caches we have polluted with temporary block data
-        // This will momentarily cause the plugin to run slower, but we must do this or risk out of memory!
-        RailSignCache.reset();
-        RailTypeCache.reset();
     }
 
-    // Discovers new switchers and destination signs. Stops upon the first new node found.
-    private void addNewlyDiscovered() {
+    // Discovers new switchers and destination signs, until the deadline (System.nanoTime) is reached
+    private void addNewlyDiscovered(long deadline) {
         BlockLocation railLocation;
-        while ((railLocation = this.pendingDiscovery.poll()) != null) {
+        while ((railLocation = this.pendingDiscovery.peek()) != null) {
+            if (System.nanoTime() > deadline) {
+                break; // Ran out of time, continue next tick
+            }
+            this.pendingDiscovery.poll();
+
             // Check this rail location was not already visited by path finding before
             if (PathNode.get(railLocation) != null) {
                 continue;
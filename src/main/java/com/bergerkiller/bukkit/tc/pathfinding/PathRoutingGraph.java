@@ -0,0 +1,352 @@
+package com.bergerkiller.bukkit.tc.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bergerkiller.bukkit.common.BlockLocation;
+
+/**
+ * Immutable, compact snapshot of the path node graph used for route finding.
+ * Every node is given an int id, and the connections are stored in flat arrays
+ * indexed by that id. Searches only use locally allocated scratch arrays, so
+ * multiple searches can safely run on the same snapshot at the same time.<br>
+ * <br>
+ * A snapshot is created from the current nodes on the main thread, and is discarded
+ * as soon as the connections between nodes change.
+ */
+public final class PathRoutingGraph {
+    private final Map<PathNode, Integer> ids;
+    private final PathNode[] nodes;
+    private final int[] edgeStart; // edges of node i are in [edgeStart[i], edgeStart[i+1])
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final double[] edgeDistance;
+    private final PathConnection[] edgeConnection;
+    private final int[] incomingStart; // incoming edges of node i are in [incomingStart[i], incomingStart[i+1])
+    private final int[] incomingEdge;
+    private final int[] nodeWorld;
+    private final int[] nodeX, nodeY, nodeZ;
+
+    public PathRoutingGraph(Collection<PathNode> allNodes) {
+        // Nodes can be mapped under multiple names, make sure each node is only added once
+        this.ids = new IdentityHashMap<PathNode, Integer>(allNodes.size());
+        List<PathNode> nodeList = new ArrayList<PathNode>(allNodes.size());
+        int numEdges = 0;
+        for (PathNode node : allNodes) {
+            if (!this.ids.containsKey(node)) {
+                this.ids.put(node, Integer.valueOf(nodeList.size()));
+                nodeList.add(node);
+                numEdges += node.getNeighbours().size();
+            }
+        }
+
+        int numNodes = nodeList.size();
+        this.nodes = nodeList.toArray(new PathNode[numNodes]);
+        this.edgeStart = new int[numNodes + 1];
+        this.edgeSource = new int[numEdges];
+        this.edgeTarget = new int[numEdges];
+        this.edgeDistance = new double[numEdges];
+        this.edgeConnection = new PathConnection[numEdges];
+        this.nodeWorld = new int[numNodes];
+        this.nodeX = new int[numNodes];
+        this.nodeY = new int[numNodes];
+        this.nodeZ = new int[numNodes];
+
+        Map<String, Integer> worldIds = new HashMap<String, Integer>();
+        int edge = 0;
+        for (int i = 0; i < numNodes; i++) {
+            PathNode node = this.nodes[i];
+            BlockLocation loc = node.location;
+            Integer worldId = worldIds.get(loc.world);
+            if (worldId == null) {
+                worldId = Integer.valueOf(worldIds.size());
+                worldIds.put(loc.world, worldId);
+            }
+            this.nodeWorld[i] = worldId.intValue();
+            this.nodeX[i] = loc.x;
+            this.nodeY[i] = loc.y;
+            this.nodeZ[i] = loc.z;
+
+            this.edgeStart[i] = edge;
+            for (PathConnection conn : node.getNeighbours()) {
+                Integer target = this.ids.get(conn.destination);
+                if (target == null) {
+                    continue; // Connection to a node that was removed, ignore it
+                }
+                this.edgeSource[edge] = i;
+                this.edgeTarget[edge] = target.intValue();
+                this.edgeDistance[edge] = conn.distance;
+                this.edgeConnection[edge] = conn;
+                edge++;
+            }
+        }
+        this.edgeStart[numNodes] = edge;
+
+        // Index the same edges by their target node, used when searching backwards from a destination
+        this.incomingStart = new int[numNodes + 1];
+        this.incomingEdge = new int[edge];
+        for (int i = 0; i < edge; i++) {
+            this.incomingStart[this.edgeTarget[i] + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            this.incomingStart[i + 1] += this.incomingStart[i];
+        }
+        int[] incomingCount = new int[numNodes];
+        for (int i = 0; i < edge; i++) {
+            int target = this.edgeTarget[i];
+            this.incomingEdge[this.incomingStart[target] + incomingCount[target]++] = i;
+        }
+    }
+
+    /**
+     * Gets the number of nodes stored in this graph
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return this.nodes.length;
+    }
+
+    /**
+     * Tries to find the shortest connection from one node to another
+     *
+     * @param from node to start at
+     * @param destination node to find
+     * @param useHeuristic whether to speed up the search using the straight-line distance to the destination
+     * @return A connection to the destination using the junction of the first connection taken,
+     *         or null if none could be found
+     */
+    public PathConnection findConnection(PathNode from, PathNode destination, boolean useHeuristic) {
+        int start = this.getId(from);
+        int goal = this.getId(destination);
+        if (start == -1 || goal == -1) {
+            return null;
+        }
+
+        int[] prevEdge = new int[this.nodes.length];
+        double distance = this.search(start, goal, useHeuristic, prevEdge);
+        if (distance == Double.MAX_VALUE) {
+            return null;
+        }
+
+        // Walk back to find the first connection taken from the start node
+        int firstEdge = -1;
+        int node = goal;
+        do {
+            firstEdge = prevEdge[node];
+            node = this.edgeSource[firstEdge];
+        } while (node != start);
+        return new PathConnection(destination, distance, this.edgeConnection[firstEdge].junctionName);
+    }
+
+    /**
+     * Tries to find the exact route (all nodes) to reach a destination from a node
+     *
+     * @param from node to start at
+     * @param destination to reach
+     * @param useHeuristic whether to speed up the search using the straight-line distance to the destination
+     * @return the route taken, or an empty array if none could be found
+     */
+    public PathNode[] findRoute(PathNode from, PathNode destination, boolean useHeuristic) {
+        int start = this.getId(from);
+        int goal = this.getId(destination);
+        if (start == -1 || goal == -1) {
+            return new PathNode[0];
+        }
+
+        int[] prevEdge = new int[this.nodes.length];
+        if (this.search(start, goal, useHeuristic, prevEdge) == Double.MAX_VALUE) {
+            return new PathNode[0];
+        }
+
+        List<PathNode> route = new ArrayList<PathNode>();
+        int node = goal;
+        route.add(this.nodes[node]);
+        do {
+            node = this.edgeSource[prevEdge[node]];
+            route.add(this.nodes[node]);
+        } while (node != start);
+
+        PathNode[] result = new PathNode[route.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = route.get(result.length - i - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the shortest connection to a destination from every node that can reach it,
+     * by searching backwards from the destination.
+     *
+     * @param destination node to find
+     * @return routing table storing the connection to take at every node
+     */
+    public PathRoutingTable createRoutingTable(PathNode destination) {
+        Map<PathNode, PathRoutingTable.Route> routes = new HashMap<PathNode, PathRoutingTable.Route>();
+        int goal = this.getId(destination);
+        if (goal == -1) {
+            return new PathRoutingTable(destination, routes);
+        }
+
+        double[] dist = new double[this.nodes.length];
+        int[] nextEdge = new int[this.nodes.length];
+        Arrays.fill(dist, Double.MAX_VALUE);
+        Arrays.fill(nextEdge, -1);
+        dist[goal] = 0.0;
+
+        NodeHeap heap = new NodeHeap();
+        heap.add(0.0, goal);
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            int node = heap.poll();
+            if (key > dist[node]) {
+                continue; // Stale
+            }
+            if (node != goal) {
+                PathConnection hop = this.edgeConnection[nextEdge[node]];
+                routes.put(this.nodes[node], new PathRoutingTable.Route(
+                        new PathConnection(destination, key, hop.junctionName), hop, key));
+            }
+            for (int i = this.incomingStart[node]; i < this.incomingStart[node + 1]; i++) {
+                int edge = this.incomingEdge[i];
+                int source = this.edgeSource[edge];
+                double newDist = key + this.edgeDistance[edge];
+                if (newDist < dist[source]) {
+                    dist[source] = newDist;
+                    nextEdge[source] = edge;
+                    heap.add(newDist, source);
+                }
+            }
+        }
+        return new PathRoutingTable(destination, routes);
+    }
+
+    private int getId(PathNode node) {
+        Integer id = this.ids.get(node);
+        return (id == null) ? -1 : id.intValue();
+    }
+
+    /**
+     * Performs a Dijkstra search (A* when using the heuristic) from start to goal.
+     * The start node is not considered reached until a connection leads back to it,
+     * which means start and goal can be the same node.
+     *
+     * @param start node id
+     * @param goal node id
+     * @param useHeuristic whether to use the straight-line distance as heuristic
+     * @param prevEdge output array storing the edge used to reach every node
+     * @return distance to the goal, or Double.MAX_VALUE if unreachable
+     */
+    private double search(int start, int goal, boolean useHeuristic, int[] prevEdge) {
+        double[] dist = new double[this.nodes.length];
+        Arrays.fill(dist, Double.MAX_VALUE);
+        Arrays.fill(prevEdge, -1);
+
+        NodeHeap heap = new NodeHeap();
+        this.relax(start, 0.0, goal, useHeuristic, dist, prevEdge, heap);
+        while (!heap.isEmpty()) {
+            double key = heap.peekKey();
+            int node = heap.poll();
+            if (node == goal) {
+                return dist[goal];
+            }
+
+            // Skip stale heap entries of nodes that were since reached with a shorter distance
+            double nodeDist = dist[node];
+            if (key > (nodeDist + this.heuristic(node, goal, useHeuristic))) {
+                continue;
+            }
+            this.relax(node, nodeDist, goal, useHeuristic, dist, prevEdge, heap);
+        }
+        return Double.MAX_VALUE;
+    }
+
+    private void relax(int node, double nodeDist, int goal, boolean useHeuristic, double[] dist, int[] prevEdge, NodeHeap heap) {
+        for (int edge = this.edgeStart[node]; edge < this.edgeStart[node + 1]; edge++) {
+            int target = this.edgeTarget[edge];
+            double newDist = nodeDist + this.edgeDistance[edge];
+            if (newDist < dist[target]) {
+                dist[target] = newDist;
+                prevEdge[target] = edge;
+                heap.add(newDist + this.heuristic(target, goal, useHeuristic), target);
+            }
+        }
+    }
+
+    // Straight-line distance between two nodes, when on the same world
+    private double heuristic(int node, int goal, boolean useHeuristic) {
+        if (!useHeuristic || this.nodeWorld[node] != this.nodeWorld[goal]) {
+            return 0.0;
+        }
+        double dx = this.nodeX[node] - this.nodeX[goal];
+        double dy = this.nodeY[node] - this.nodeY[goal];
+        double dz = this.nodeZ[node] - this.nodeZ[goal];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Binary min-heap of node ids sorted by a double key. Nodes can be added more than once,
+     * duplicates are filtered out by the search itself.
+     */
+    private static final class NodeHeap {
+        private double[] keys = new double[16];
+        private int[] values = new int[16];
+        private int size = 0;
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        public double peekKey() {
+            return this.keys[0];
+        }
+
+        public void add(double key, int value) {
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size << 1);
+                this.values = Arrays.copyOf(this.values, this.size << 1);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.keys[parent] <= key) {
+                    break;
+                }
+                this.keys[i] = this.keys[parent];
+                this.values[i] = this.values[parent];
+                i = parent;
+            }
+            this.keys[i] = key;
+            this.values[i] = value;
+        }
+
+        public int poll() {
+            int result = this.values[0];
+            int last = --this.size;
+            double key = this.keys[last];
+            int value = this.values[last];
+            int i = 0;
+            int half = last >>> 1;
+            while (i < half) {
+                int child = (i << 1) + 1;
+                if ((child + 1) < last && this.keys[child + 1] < this.keys[child]) {
+                    child++;
+                }
+                if (key <= this.keys[child]) {
+                    break;
+                }
+                this.keys[i] = this.keys[child];
+                this.values[i] = this.values[child];
+                i = child;
+            }
+            this.keys[i] = key;
+            this.values[i] = value;
+            return result;
+        }
+    }
+}
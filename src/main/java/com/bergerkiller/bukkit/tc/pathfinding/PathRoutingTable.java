@@ -0,0 +1,89 @@
+package com.bergerkiller.bukkit.tc.pathfinding;
+
+import java.util.Map;
+
+/**
+ * Stores the shortest connection to take at every node to reach a single destination.
+ * Tables are created on demand from the {@link PathRoutingGraph} and are kept for as long as
+ * changes to the connections between nodes do not affect the routes stored inside.
+ */
+public final class PathRoutingTable {
+    private final PathNode destination;
+    private final Map<PathNode, Route> routes;
+
+    PathRoutingTable(PathNode destination, Map<PathNode, Route> routes) {
+        this.destination = destination;
+        this.routes = routes;
+    }
+
+    /**
+     * Gets the destination node routes of this table lead to
+     *
+     * @return destination node
+     */
+    public PathNode getDestination() {
+        return this.destination;
+    }
+
+    /**
+     * Gets the connection to take at a node to reach the destination of this table
+     *
+     * @param from node to start at
+     * @return A connection to the destination using the junction of the first connection taken,
+     *         or null if none could be found
+     */
+    public PathConnection findConnection(PathNode from) {
+        Route route = this.routes.get(from);
+        return (route == null) ? null : route.connection;
+    }
+
+    /**
+     * Checks whether adding a new connection could result in a shorter route being
+     * available than is stored in this table.
+     *
+     * @param from node the connection was added to
+     * @param connection that was added
+     * @return True if this table is no longer valid, False if not
+     */
+    public boolean isChangedByAdd(PathNode from, PathConnection connection) {
+        if (from == this.destination) {
+            return false;
+        }
+        double toDistance;
+        if (connection.destination == this.destination) {
+            toDistance = 0.0;
+        } else {
+            Route toRoute = this.routes.get(connection.destination);
+            if (toRoute == null) {
+                return false; // Destination can not be reached from there either
+            }
+            toDistance = toRoute.distance;
+        }
+        Route fromRoute = this.routes.get(from);
+        return fromRoute == null || (toDistance + connection.distance) < fromRoute.distance;
+    }
+
+    /**
+     * Checks whether removing a connection breaks a route stored in this table
+     *
+     * @param from node the connection was removed from
+     * @param connection that was removed
+     * @return True if this table is no longer valid, False if not
+     */
+    public boolean isChangedByRemove(PathNode from, PathConnection connection) {
+        Route route = this.routes.get(from);
+        return route != null && route.hop == connection;
+    }
+
+    static final class Route {
+        public final PathConnection connection;
+        public final PathConnection hop;
+        public final double distance;
+
+        public Route(PathConnection connection, PathConnection hop, double distance) {
+            this.connection = connection;
+            this.hop = hop;
+            this.distance = distance;
+        }
+    }
+}
@@ -418,6 +418,12 @@ public class CartProperties extends CartPropertiesStore implements IProperties {
     @Override
     public void setDestination(String destination) {
         this.destination = destination == null ? "" : destination;
+
+        // A new destination can make a waiting train switch the rails it is on
+        MinecartGroup group = this.getGroup();
+        if (group != null) {
+            group.wakeUp();
+        }
     }
 
     @Override
@@ -137,6 +137,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
      */
     public void setWaitDistance(double waitDistance) {
         this.waitDistance = waitDistance;
+        this.wakeUpHolder();
     }
 
     /**
@@ -158,6 +159,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
      */
     public void setSpeedLimit(double limit) {
         this.speedLimit = MathUtil.clamp(limit, 0, TCConfig.maxVelocity);
+        this.wakeUpHolder();
     }
 
     /**
@@ -203,6 +205,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
         } else {
             this.slowDownOptions.clear();
         }
+        this.wakeUpHolder();
     }
 
     /**
@@ -223,6 +226,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
      */
     public void setSlowingDown(SlowdownMode mode, boolean slowingDown) {
         LogicUtil.addOrRemove(this.slowDownOptions, mode, slowingDown);
+        this.wakeUpHolder();
     }
 
     /**
@@ -241,6 +245,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
      */
     public void setColliding(boolean state) {
         this.collision = state;
+        this.wakeUpHolder();
     }
 
     /**
@@ -752,6 +757,7 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
      */
     public void setManualMovementAllowed(boolean allow) {
         this.allowManualMovement = allow;
+        this.wakeUpHolder();
     }
 
     /**
@@ -860,6 +866,12 @@ public class TrainProperties extends TrainPropertiesStore implements IProperties
         if (g != null) g.onPropertiesChanged();
     }
 
+    // Wakes up a dormant train, as the property that changed could make it move again
+    private void wakeUpHolder() {
+        MinecartGroup g = this.getHolder();
+        if (g != null) g.wakeUp();
+    }
+
     @Override
     public boolean parseSet(String key, String arg) {
         TrainPropertiesStore.markForAutosave();
@@ -7,6 +7,7 @@ import com.bergerkiller.bukkit.common.utils.WorldUtil;
 import com.bergerkiller.bukkit.tc.Permission;
 import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.Util;
+import com.bergerkiller.bukkit.tc.cache.RailSignCache;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartMember;
 import com.bergerkiller.bukkit.tc.controller.MinecartMemberStore;
@@ -32,9 +33,13 @@ import java.util.logging.Level;
 public abstract class SignAction {
     private static final Material SIGN_POST_TYPE = getMaterial("LEGACY_SIGN_POST");
     private static List<SignAction> actions;
+    private static SignActionTypeIndex actionsByType = null;
+    private static int version = 0;
+    private String[] typeNames = null; // getTypeNames() of this action, used by isType(info)
 
     public static void init() {
         actions = new ArrayList<>();
+        invalidateActionCache();
         register(new SignActionStation());
         register(new SignActionLauncher());
         register(new SignActionSwitcher());
@@ -66,6 +71,7 @@ public abstract class SignAction {
 
     public static void deinit() {
         actions = null;
+        invalidateActionCache();
     }
 
     /**
@@ -75,7 +81,33 @@ public abstract class SignAction {
      * @return sign action, or null if not found
      */
     public static SignAction getSignAction(SignActionEvent event) {
-        for (SignAction action : actions) {
+        if (actions == null) {
+            return null;
+        }
+
+        // Signs tracked by rails remember the actions that matched them the last time
+        RailSignCache.TrackedSign trackedSign = event.getTrackedSign();
+        if (trackedSign != null) {
+            SignAction[] matched = trackedSign.getMatchedActions(version);
+            if (matched == null) {
+                List<SignAction> matchedList = new ArrayList<SignAction>(1);
+                for (SignAction action : getCandidateActions(event)) {
+                    if (action.match(event)) {
+                        matchedList.add(action);
+                    }
+                }
+                matched = matchedList.toArray(new SignAction[matchedList.size()]);
+                trackedSign.setMatchedActions(version, matched);
+            }
+            for (SignAction action : matched) {
+                if (action.verify(event)) {
+                    return action;
+                }
+            }
+            return null;
+        }
+
+        for (SignAction action : getCandidateActions(event)) {
             if (action.match(event) && action.verify(event)) {
                 return action;
             }
@@ -83,15 +115,40 @@ public abstract class SignAction {
         return null;
     }
 
+    /**
+     * Gets the registered actions that could match a sign, in the order they were registered.
+     * See {@link SignActionTypeIndex}.
+     * 
+     * @param event of the sign
+     * @return candidate actions
+     */
+    private static List<SignAction> getCandidateActions(SignActionEvent event) {
+        if (actionsByType == null) {
+            actionsByType = new SignActionTypeIndex(actions);
+        }
+        return actionsByType.getCandidates(event.getLine(1));
+    }
+
+    /**
+     * Discards the index of sign actions, and the actions remembered by tracked signs.
+     * Must be called when the outcome of {@link #match(SignActionEvent)} changes for existing signs.
+     */
+    public static void invalidateActionCache() {
+        actionsByType = null;
+        version++;
+    }
+
     public static <T extends SignAction> T register(T action) {
         if (actions == null) return action;
         actions.add(action);
+        invalidateActionCache();
         return action;
     }
 
     public static void unregister(SignAction action) {
         if (actions == null) return;
         actions.remove(action);
+        invalidateActionCache();
     }
 
     /**
@@ -312,6 +369,32 @@ public abstract class SignAction {
      */
     public abstract boolean match(SignActionEvent info);
 
+    /**
+     * Gets the sign types on the second line of the sign that this Sign Action matches.
+     * This is used to quickly look up the Sign Actions that could match a sign.
+     * If {@link #match(SignActionEvent)} does not only match by sign type, return null.
+     * 
+     * @return sign type names, or null if signs of any type can match
+     */
+    public String[] getTypeNames() {
+        return null;
+    }
+
+    /**
+     * Checks whether the sign of an event is of one of the sign types returned by {@link #getTypeNames()}.
+     * Can be used in {@link #match(SignActionEvent)}, so that the sign types are only listed once.
+     * 
+     * @param info event
+     * @return True if the sign is of one of the sign types of this Sign Action, False if not
+     */
+    protected final boolean isType(SignActionEvent info) {
+        String[] typeNames = this.typeNames;
+        if (typeNames == null) {
+            this.typeNames = typeNames = this.getTypeNames();
+        }
+        return info.isType(typeNames);
+    }
+
     /**
      * Fired when this sign is being executed for a certain event
      *
@@ -39,7 +39,12 @@ public class SignActionAnnounce extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("announce");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"announce"};
     }
 
     @Override
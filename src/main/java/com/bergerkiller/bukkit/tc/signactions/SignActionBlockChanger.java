@@ -60,7 +60,12 @@ public class SignActionBlockChanger extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("blockchanger", "setblock", "changeblock");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"blockchanger", "setblock", "changeblock"};
     }
 
     @Override
@@ -14,7 +14,12 @@ public class SignActionBlocker extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("blocker");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"blocker"};
     }
 
     @Override
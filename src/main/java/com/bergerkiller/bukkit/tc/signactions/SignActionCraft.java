@@ -26,7 +26,12 @@ public class SignActionCraft extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("craft");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"craft"};
     }
 
     @Override
@@ -14,7 +14,12 @@ public class SignActionDestination extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("destination");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"destination"};
     }
 
     @Override
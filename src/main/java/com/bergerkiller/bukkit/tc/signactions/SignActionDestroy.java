@@ -9,7 +9,12 @@ public class SignActionDestroy extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("destroy");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"destroy"};
     }
 
     @Override
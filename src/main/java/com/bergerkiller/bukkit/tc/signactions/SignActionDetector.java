@@ -32,7 +32,12 @@ public class SignActionDetector extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info != null && info.getMode() != SignActionMode.NONE && info.isType("detect");
+        return info != null && info.getMode() != SignActionMode.NONE && isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"detect"};
     }
 
     /**
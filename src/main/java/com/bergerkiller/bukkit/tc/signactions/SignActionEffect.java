@@ -31,7 +31,12 @@ public class SignActionEffect extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("effect", "meffect", "peffect");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"effect", "meffect", "peffect"};
     }
 
     @Override
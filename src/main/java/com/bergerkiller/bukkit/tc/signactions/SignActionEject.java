@@ -24,7 +24,12 @@ public class SignActionEject extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("eject");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"eject"};
     }
 
     @Override
@@ -74,7 +74,12 @@ public class SignActionElevator extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("elevator");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"elevator"};
     }
 
     @Override
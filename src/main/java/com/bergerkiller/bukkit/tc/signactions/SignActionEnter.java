@@ -23,7 +23,12 @@ public class SignActionEnter extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.getMode() != SignActionMode.NONE && info.isType("enter");
+        return info.getMode() != SignActionMode.NONE && isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"enter"};
     }
 
     @Override
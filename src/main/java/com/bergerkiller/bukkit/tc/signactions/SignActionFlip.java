@@ -10,7 +10,12 @@ public class SignActionFlip extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("flip");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"flip"};
     }
 
     @Override
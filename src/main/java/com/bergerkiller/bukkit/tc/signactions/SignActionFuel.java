@@ -24,7 +24,12 @@ public class SignActionFuel extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("fuel");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"fuel"};
     }
 
     @Override
@@ -18,7 +18,12 @@ public class SignActionJumper extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("jump") && info.getMode() != SignActionMode.NONE;
+        return isType(info) && info.getMode() != SignActionMode.NONE;
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"jump"};
     }
 
     @Override
@@ -16,7 +16,12 @@ public class SignActionLauncher extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("launch");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"launch"};
     }
 
     @Override
@@ -15,7 +15,12 @@ public class SignActionMutex extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("mutex");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"mutex"};
     }
 
     @Override
@@ -27,12 +32,16 @@ public class SignActionMutex extends SignAction {
         return handleBuild(event, Permission.BUILD_MUTEX, "mutex zone", "prevent more than one train entering a zone");
     }
 
+    @Override
+    public void destroy(SignActionEvent info) {
+        MutexZoneCache.removeMutexSign(info);
+    }
+
     @Override
     public void loadedChanged(SignActionEvent info, boolean loaded) {
+        // Zones are kept when the sign unloads, so trains in neighbouring chunks still respect them
         if (loaded) {
             MutexZoneCache.addMutexSign(info);
-        } else {
-            MutexZoneCache.removeMutexSign(info);
         }
     }
 }
@@ -30,7 +30,12 @@ public class SignActionProperties extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("property");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"property"};
     }
 
     @Override
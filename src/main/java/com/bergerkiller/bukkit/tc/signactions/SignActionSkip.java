@@ -17,7 +17,12 @@ public class SignActionSkip extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("skip");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"skip"};
     }
 
     @Override
@@ -12,7 +12,12 @@ import org.bukkit.Location;
 public class SignActionSound extends SignAction {
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("sound", "msound");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"sound", "msound"};
     }
 
     @Override
@@ -34,6 +34,11 @@ public class SignActionSpawn extends SignAction {
         return SpawnSign.isValid(info);
     }
 
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"spawn"};
+    }
+
     @Override
     public void execute(SignActionEvent info) {
         if (!info.isAction(SignActionType.REDSTONE_ON, SignActionType.REDSTONE_OFF)) {
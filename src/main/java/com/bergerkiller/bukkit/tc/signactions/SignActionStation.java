@@ -13,7 +13,12 @@ public class SignActionStation extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("station") && info.getMode() != SignActionMode.NONE;
+        return isType(info) && info.getMode() != SignActionMode.NONE;
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"station"};
     }
 
     @Override
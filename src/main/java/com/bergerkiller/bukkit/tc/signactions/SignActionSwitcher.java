@@ -34,7 +34,12 @@ public class SignActionSwitcher extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("switcher", "tag");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"switcher", "tag"};
     }
 
     @Override
@@ -18,7 +18,12 @@ public class SignActionTicket extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return TCConfig.EssentialsEnabled && info.isType("ticket");
+        return TCConfig.EssentialsEnabled && isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"ticket"};
     }
 
     @Override
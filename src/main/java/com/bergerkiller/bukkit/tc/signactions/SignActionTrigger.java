@@ -9,7 +9,12 @@ public class SignActionTrigger extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("trigger");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"trigger"};
     }
 
     @Override
@@ -0,0 +1,65 @@
+package com.bergerkiller.bukkit.tc.signactions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes sign actions by the first character of the sign types they match, as returned by
+ * {@link SignAction#getTypeNames()}. Actions that do not specify the sign types they match
+ * are included for every sign. The order in which actions were registered is kept.
+ */
+final class SignActionTypeIndex {
+    private final Map<Character, List<SignAction>> actionsByType = new HashMap<Character, List<SignAction>>();
+    private final List<SignAction> actionsAnyType = new ArrayList<SignAction>();
+
+    public SignActionTypeIndex(List<SignAction> actions) {
+        for (SignAction action : actions) {
+            String[] typeNames = action.getTypeNames();
+            if (typeNames == null) {
+                this.actionsAnyType.add(action);
+            } else {
+                for (String typeName : typeNames) {
+                    if (!typeName.isEmpty()) {
+                        this.actionsByType.put(Character.valueOf(typeName.charAt(0)), null);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<Character, List<SignAction>> entry : this.actionsByType.entrySet()) {
+            char c = entry.getKey().charValue();
+            List<SignAction> typeActions = new ArrayList<SignAction>();
+            for (SignAction action : actions) {
+                String[] typeNames = action.getTypeNames();
+                if (typeNames == null) {
+                    typeActions.add(action);
+                } else {
+                    for (String typeName : typeNames) {
+                        if (!typeName.isEmpty() && typeName.charAt(0) == c) {
+                            typeActions.add(action);
+                            break;
+                        }
+                    }
+                }
+            }
+            entry.setValue(typeActions);
+        }
+    }
+
+    /**
+     * Gets the actions that could match a sign with a particular sign type on the second line
+     *
+     * @param type second line of the sign
+     * @return candidate actions
+     */
+    public List<SignAction> getCandidates(String type) {
+        if (!type.isEmpty()) {
+            List<SignAction> typeActions = this.actionsByType.get(Character.valueOf(Character.toLowerCase(type.charAt(0))));
+            if (typeActions != null) {
+                return typeActions;
+            }
+        }
+        return this.actionsAnyType;
+    }
+}
@@ -16,7 +16,12 @@ public class SignActionWait extends SignAction {
 
     @Override
     public boolean match(SignActionEvent info) {
-        return info.isType("wait");
+        return isType(info);
+    }
+
+    @Override
+    public String[] getTypeNames() {
+        return new String[] {"wait"};
     }
 
     @Override
@@ -1,5 +1,8 @@
 package com.bergerkiller.bukkit.tc.signactions.mutex;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.UUID;
 
 import org.bukkit.Location;
@@ -8,6 +11,7 @@ import org.bukkit.block.Block;
 import com.bergerkiller.bukkit.common.bases.IntVector3;
 import com.bergerkiller.bukkit.common.utils.CommonUtil;
 import com.bergerkiller.bukkit.common.utils.ParseUtil;
+import com.bergerkiller.bukkit.common.utils.StreamUtil;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroup;
 import com.bergerkiller.bukkit.tc.controller.MinecartGroupStore;
 import com.bergerkiller.bukkit.tc.controller.components.RailTracker.TrackedRail;
@@ -15,14 +19,16 @@ import com.bergerkiller.bukkit.tc.events.SignActionEvent;
 
 public class MutexZone {
     public final UUID world;
+    public final IntVector3 signBlock;
     public final IntVector3 block;
     public final IntVector3 start;
     public final IntVector3 end;
     private MinecartGroup currentGroup = null;
     private int currentGroupTimeout = 0;
 
-    private MutexZone(UUID world, IntVector3 block, int dx, int dy, int dz) {
+    MutexZone(UUID world, IntVector3 signBlock, IntVector3 block, int dx, int dy, int dz) {
         this.world = world;
+        this.signBlock = signBlock;
         this.block = block;
         this.start = new IntVector3(block.x - dx, block.y - dy, block.z - dz);
         this.end = new IntVector3(block.x + dx, block.y + dy, block.z + dz);
@@ -72,7 +78,26 @@ public class MutexZone {
                 }
             }
         }
-        return new MutexZone(info.getWorld().getUID(), getPosition(info), dx, dy, dz);
+        return new MutexZone(info.getWorld().getUID(), new IntVector3(info.getBlock()), getPosition(info), dx, dy, dz);
+    }
+
+    public static MutexZone read(DataInputStream stream) throws IOException {
+        UUID world = StreamUtil.readUUID(stream);
+        IntVector3 signBlock = IntVector3.read(stream);
+        IntVector3 block = IntVector3.read(stream);
+        int dx = stream.readInt();
+        int dy = stream.readInt();
+        int dz = stream.readInt();
+        return new MutexZone(world, signBlock, block, dx, dy, dz);
+    }
+
+    public void write(DataOutputStream stream) throws IOException {
+        StreamUtil.writeUUID(stream, this.world);
+        this.signBlock.write(stream);
+        this.block.write(stream);
+        stream.writeInt(this.block.x - this.start.x);
+        stream.writeInt(this.block.y - this.start.y);
+        stream.writeInt(this.block.z - this.start.z);
     }
 
     public static IntVector3 getPosition(SignActionEvent info) {
@@ -1,53 +1,139 @@
 package com.bergerkiller.bukkit.tc.signactions.mutex;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.logging.Level;
 
 import org.bukkit.Chunk;
-import org.bukkit.block.BlockState;
-import org.bukkit.block.Sign;
+import org.bukkit.block.Block;
 
 import com.bergerkiller.bukkit.common.bases.IntVector3;
-import com.bergerkiller.bukkit.common.collections.BlockMap;
-import com.bergerkiller.bukkit.common.utils.WorldUtil;
+import com.bergerkiller.bukkit.common.config.DataReader;
+import com.bergerkiller.bukkit.common.config.DataWriter;
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.TrainCarts;
 import com.bergerkiller.bukkit.tc.events.SignActionEvent;
+import com.bergerkiller.bukkit.tc.signactions.SignAction;
+import com.bergerkiller.bukkit.tc.signactions.SignActionMutex;
 
 public class MutexZoneCache {
-    private static final BlockMap<MutexZone> zones = new BlockMap<MutexZone>();
+    private static boolean hasChanges = false;
+    private static final Set<MutexZone> zones = new HashSet<MutexZone>();
+    private static final Map<UUID, WorldZones> worlds = new HashMap<UUID, WorldZones>();
+
+    public static void init(String filename) {
+        deinit();
+        new DataReader(filename) {
+            public void read(DataInputStream stream) throws IOException {
+                int count = stream.readInt();
+                for (; count > 0; --count) {
+                    add(MutexZone.read(stream));
+                }
+                if (zones.size() == 1) {
+                    TrainCarts.plugin.log(Level.INFO, zones.size() + " mutex zone loaded");
+                } else {
+                    TrainCarts.plugin.log(Level.INFO, zones.size() + " mutex zones loaded");
+                }
+            }
+        }.read();
+        hasChanges = false;
+    }
+
+    public static void save(boolean autosave, String filename) {
+        if (autosave && !hasChanges) {
+            return;
+        }
+        new DataWriter(filename) {
+            public void write(DataOutputStream stream) throws IOException {
+                stream.writeInt(zones.size());
+                for (MutexZone zone : zones) {
+                    zone.write(stream);
+                }
+            }
+        }.write();
+        hasChanges = false;
+    }
+
+    public static void deinit() {
+        zones.clear();
+        worlds.clear();
+    }
 
     /**
-     * Loads the mutex zones in a Chunk by iterating the signs within
-     * 
+     * Verifies the mutex zones of the signs inside a Chunk that was just loaded.
+     * Zones are saved, and are known before the chunks of their signs are loaded. If signs
+     * were removed or changed while the chunk was unloaded, the zone is removed here.
+     *
      * @param chunk
      */
     public static void loadChunk(Chunk chunk) {
-        for (BlockState state : WorldUtil.getBlockStates(chunk)) {
-            if (!(state instanceof Sign)) {
-                return;
+        WorldZones worldZones = worlds.get(chunk.getWorld().getUID());
+        if (worldZones == null) {
+            return;
+        }
+        List<MutexZone> chunkZones = worldZones.bySignChunk.get(MathUtil.longHashToLong(chunk.getX(), chunk.getZ()));
+        if (chunkZones == null) {
+            return;
+        }
+        for (MutexZone zone : new ArrayList<MutexZone>(chunkZones)) {
+            Block signBlock = chunk.getWorld().getBlockAt(zone.signBlock.x, zone.signBlock.y, zone.signBlock.z);
+            SignActionEvent info = new SignActionEvent(signBlock);
+            if (info.getSign() == null || !(SignAction.getSignAction(info) instanceof SignActionMutex)) {
+                remove(zone);
             }
         }
     }
 
     public static void addMutexSign(SignActionEvent info) {
-        zones.put(info.getBlock(), MutexZone.fromSign(info));
+        MutexZone zone = MutexZone.fromSign(info);
+        WorldZones worldZones = worlds.get(zone.world);
+        MutexZone previous = (worldZones == null) ? null : worldZones.findBySign(zone.signBlock);
+        if (previous != null) {
+            if (previous.block.equals(zone.block) && previous.start.equals(zone.start) && previous.end.equals(zone.end)) {
+                return; // Unchanged, keep the zone (and the train occupying it)
+            }
+            remove(previous);
+        }
+        add(zone);
     }
 
     public static void removeMutexSign(SignActionEvent info) {
-        zones.remove(info.getWorld(), MutexZone.getPosition(info));
+        WorldZones worldZones = worlds.get(info.getWorld().getUID());
+        if (worldZones != null) {
+            MutexZone zone = worldZones.findBySign(new IntVector3(info.getBlock()));
+            if (zone != null) {
+                remove(zone);
+            }
+        }
     }
 
     /**
      * Finds a mutex zone at a particular block
-     * 
+     *
      * @param world
      * @param block
      * @return mutex zone, null if not found
      */
     public static MutexZone find(UUID world, IntVector3 block) {
-        for (MutexZone zone : zones.values()) {
-            if (zone.containsBlock(world, block)) {
-                return zone;
+        WorldZones worldZones = worlds.get(world);
+        if (worldZones == null) {
+            return null;
+        }
+        List<MutexZone> chunkZones = worldZones.byChunk.get(MathUtil.longHashToLong(block.x >> 4, block.z >> 4));
+        if (chunkZones != null) {
+            for (MutexZone zone : chunkZones) {
+                if (zone.containsBlock(world, block)) {
+                    return zone;
+                }
             }
         }
         return null;
@@ -57,16 +143,27 @@ public class MutexZoneCache {
      * Checks whether there is a mutex zone nearby a particular block. This checks for a small
      * radius around the mutex zones. Minecarts with their position inside this zone need to watch out
      * and perform speed-ahead checks in order to stop.
-     * 
+     *
      * @param world
      * @param block
      * @param radius
      * @return True if a mutex zone is nearby
      */
     public static boolean isMutexZoneNearby(UUID world, IntVector3 block, int radius) {
-        for (MutexZone zone : zones.values()) {
-            if (zone.isNearby(world, block, radius)) {
-                return true;
+        WorldZones worldZones = worlds.get(world);
+        if (worldZones == null) {
+            return false;
+        }
+        for (int cx = (block.x - radius) >> 4; cx <= ((block.x + radius) >> 4); cx++) {
+            for (int cz = (block.z - radius) >> 4; cz <= ((block.z + radius) >> 4); cz++) {
+                List<MutexZone> chunkZones = worldZones.byChunk.get(MathUtil.longHashToLong(cx, cz));
+                if (chunkZones != null) {
+                    for (MutexZone zone : chunkZones) {
+                        if (zone.isNearby(world, block, radius)) {
+                            return true;
+                        }
+                    }
+                }
             }
         }
         return false;
@@ -74,7 +171,7 @@ public class MutexZoneCache {
 
     /**
      * Adds all mutex zones nearby a position. See {@link #isMutexZoneNearby(UUID, IntVector3, int)}
-     * 
+     *
      * @param world
      * @param block
      * @param radius
@@ -82,11 +179,100 @@ public class MutexZoneCache {
      */
     public static List<MutexZone> findNearbyZones(UUID world, IntVector3 block, int radius) {
         List<MutexZone> result = new ArrayList<MutexZone>();
-        for (MutexZone zone : zones.values()) {
-            if (zone.isNearby(world, block, radius)) {
-                result.add(zone);
+        WorldZones worldZones = worlds.get(world);
+        if (worldZones == null) {
+            return result;
+        }
+        for (int cx = (block.x - radius) >> 4; cx <= ((block.x + radius) >> 4); cx++) {
+            for (int cz = (block.z - radius) >> 4; cz <= ((block.z + radius) >> 4); cz++) {
+                List<MutexZone> chunkZones = worldZones.byChunk.get(MathUtil.longHashToLong(cx, cz));
+                if (chunkZones != null) {
+                    for (MutexZone zone : chunkZones) {
+                        // Zones spanning multiple chunks are found more than once
+                        if (zone.isNearby(world, block, radius) && !result.contains(zone)) {
+                            result.add(zone);
+                        }
+                    }
+                }
             }
         }
         return result;
     }
+
+    static void add(MutexZone zone) {
+        WorldZones worldZones = worlds.get(zone.world);
+        if (worldZones == null) {
+            worldZones = new WorldZones();
+            worlds.put(zone.world, worldZones);
+        }
+        worldZones.add(zone);
+        zones.add(zone);
+        hasChanges = true;
+    }
+
+    static void remove(MutexZone zone) {
+        WorldZones worldZones = worlds.get(zone.world);
+        if (worldZones != null) {
+            worldZones.remove(zone);
+        }
+        zones.remove(zone);
+        hasChanges = true;
+    }
+
+    /**
+     * Indexes the mutex zones of a single world by the chunks their area overlaps,
+     * and by the chunk their sign is in
+     */
+    private static final class WorldZones {
+        public final LongHashMap<List<MutexZone>> byChunk = new LongHashMap<List<MutexZone>>();
+        public final LongHashMap<List<MutexZone>> bySignChunk = new LongHashMap<List<MutexZone>>();
+
+        public MutexZone findBySign(IntVector3 signBlock) {
+            List<MutexZone> chunkZones = this.bySignChunk.get(MathUtil.longHashToLong(signBlock.x >> 4, signBlock.z >> 4));
+            if (chunkZones != null) {
+                for (MutexZone zone : chunkZones) {
+                    if (zone.signBlock.equals(signBlock)) {
+                        return zone;
+                    }
+                }
+            }
+            return null;
+        }
+
+        public void add(MutexZone zone) {
+            addToChunk(this.bySignChunk, zone.signBlock.x >> 4, zone.signBlock.z >> 4, zone);
+            for (int cx = zone.start.x >> 4; cx <= (zone.end.x >> 4); cx++) {
+                for (int cz = zone.start.z >> 4; cz <= (zone.end.z >> 4); cz++) {
+                    addToChunk(this.byChunk, cx, cz, zone);
+                }
+            }
+        }
+
+        public void remove(MutexZone zone) {
+            removeFromChunk(this.bySignChunk, zone.signBlock.x >> 4, zone.signBlock.z >> 4, zone);
+            for (int cx = zone.start.x >> 4; cx <= (zone.end.x >> 4); cx++) {
+                for (int cz = zone.start.z >> 4; cz <= (zone.end.z >> 4); cz++) {
+                    removeFromChunk(this.byChunk, cx, cz, zone);
+                }
+            }
+        }
+
+        private static void addToChunk(LongHashMap<List<MutexZone>> map, int cx, int cz, MutexZone zone) {
+            long key = MathUtil.longHashToLong(cx, cz);
+            List<MutexZone> chunkZones = map.get(key);
+            if (chunkZones == null) {
+                chunkZones = new ArrayList<MutexZone>(1);
+                map.put(key, chunkZones);
+            }
+            chunkZones.add(zone);
+        }
+
+        private static void removeFromChunk(LongHashMap<List<MutexZone>> map, int cx, int cz, MutexZone zone) {
+            long key = MathUtil.longHashToLong(cx, cz);
+            List<MutexZone> chunkZones = map.get(key);
+            if (chunkZones != null && chunkZones.remove(zone) && chunkZones.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
 }
@@ -28,6 +28,7 @@ import com.bergerkiller.bukkit.tc.events.SignActionEvent;
 import com.bergerkiller.bukkit.tc.signactions.SignActionMode;
 import com.bergerkiller.bukkit.tc.signactions.SignActionSpawn;
 import com.bergerkiller.bukkit.tc.utils.ChunkArea;
+import com.bergerkiller.bukkit.tc.utils.ChunkKeepAliveManager;
 
 public class SpawnSign {
     private final BlockLocation location;
@@ -42,6 +43,8 @@ public class SpawnSign {
     // This is used to track and load chunks in preparation of a spawn
     private long[] chunks_array = null;
     private int chunks_last_idx = 0;
+    private final LongHashSet chunks_kept = new LongHashSet();
+    private World chunks_kept_world = null;
 
     public SpawnSign(BlockLocation location) {
         this.location = location;
@@ -197,7 +200,13 @@ public class SpawnSign {
             long chunkComp = this.chunks_array[this.chunks_last_idx++];
             int chunkX = MathUtil.longHashMsw(chunkComp);
             int chunkZ = MathUtil.longHashLsw(chunkComp);
-            WorldUtil.getChunkAsync(this.world_last, chunkX, chunkZ, ChunkArea.DUMMY_RUNNABLE);
+            if (this.chunks_kept.add(chunkComp)) {
+                // Keep the chunk loaded until the spawn happened. If already kept loaded, it needs no loading.
+                this.chunks_kept_world = this.world_last;
+                if (ChunkKeepAliveManager.acquire(this.world_last, chunkX, chunkZ)) {
+                    WorldUtil.getChunkAsync(this.world_last, chunkX, chunkZ, ChunkArea.DUMMY_RUNNABLE);
+                }
+            }
         }
         if (this.chunks_last_idx >= this.chunks_array.length) {
             this.world_last = null;
@@ -209,6 +218,22 @@ public class SpawnSign {
      */
     public void loadChunksAsyncReset() {
         this.chunks_last_idx = 0;
+        this.releaseChunks();
+    }
+
+    /**
+     * Stops keeping the chunks loaded that were loaded in preparation of a spawn
+     */
+    public void releaseChunks() {
+        if (this.chunks_kept_world != null) {
+            LongIterator iter = this.chunks_kept.longIterator();
+            while (iter.hasNext()) {
+                long chunkComp = iter.next();
+                ChunkKeepAliveManager.release(this.chunks_kept_world, MathUtil.longHashMsw(chunkComp), MathUtil.longHashLsw(chunkComp));
+            }
+            this.chunks_kept_world = null;
+        }
+        this.chunks_kept.clear();
     }
 
     /**
@@ -90,6 +90,7 @@ public class SpawnSignManager {
     public void remove(SignActionEvent signEvent) {
         SpawnSign removed = this.signs.remove(signEvent.getBlock());
         if (removed != null) {
+            removed.releaseChunks();
             this.notifyChanged();
         }
     }
@@ -97,6 +98,7 @@ public class SpawnSignManager {
     public void remove(SpawnSign sign) {
         SpawnSign removed = this.signs.remove(sign.getLocation());
         if (removed != null) {
+            removed.releaseChunks();
             this.notifyChanged();
         }
     }
@@ -0,0 +1,161 @@
+package com.bergerkiller.bukkit.tc.utils;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+import com.bergerkiller.bukkit.common.utils.MathUtil;
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.TCConfig;
+
+/**
+ * Keeps track of all the chunks that are kept loaded by trains and spawn signs. Every chunk
+ * counts the number of owners that keep it loaded, so that trains following each other do
+ * not load and unload the same chunks over and over. When the last owner releases a chunk,
+ * it is kept loaded a little longer (linger time) before an unload is requested.
+ */
+public class ChunkKeepAliveManager {
+    private static final Map<UUID, LongHashMap<Ticket>> tickets = new HashMap<UUID, LongHashMap<Ticket>>();
+    private static final ArrayDeque<PendingRelease> pendingRelease = new ArrayDeque<PendingRelease>();
+
+    /**
+     * Adds an owner to a chunk, keeping it loaded
+     *
+     * @param world of the chunk
+     * @param cx - chunk X-coordinate
+     * @param cz - chunk Z-coordinate
+     * @return True if the chunk was not yet kept loaded and must be loaded by the caller, False if it already was
+     */
+    public static boolean acquire(World world, int cx, int cz) {
+        UUID worldUUID = world.getUID();
+        LongHashMap<Ticket> worldTickets = tickets.get(worldUUID);
+        if (worldTickets == null) {
+            worldTickets = new LongHashMap<Ticket>();
+            tickets.put(worldUUID, worldTickets);
+        }
+        long key = MathUtil.longHashToLong(cx, cz);
+        Ticket ticket = worldTickets.get(key);
+        if (ticket == null) {
+            ticket = new Ticket(world, cx, cz);
+            worldTickets.put(key, ticket);
+            ticket.owners = 1;
+            return true;
+        } else {
+            ticket.owners++;
+            return false;
+        }
+    }
+
+    /**
+     * Removes an owner from a chunk. When no owners remain, the chunk is unloaded
+     * after the configured linger time, unless an owner is added again before then.
+     *
+     * @param world of the chunk
+     * @param cx - chunk X-coordinate
+     * @param cz - chunk Z-coordinate
+     */
+    public static void release(World world, int cx, int cz) {
+        LongHashMap<Ticket> worldTickets = tickets.get(world.getUID());
+        if (worldTickets == null) {
+            return;
+        }
+        Ticket ticket = worldTickets.get(MathUtil.longHashToLong(cx, cz));
+        if (ticket != null && ticket.owners > 0 && --ticket.owners == 0) {
+            ticket.releaseTime = System.currentTimeMillis() + TCConfig.keepChunksLoadedLingerTime;
+            pendingRelease.add(new PendingRelease(ticket));
+        }
+    }
+
+    /**
+     * Adds an owner to a chunk tracked by a chunk area, see {@link #acquire(World, int, int)}
+     *
+     * @param chunk
+     * @return True if the chunk was not yet kept loaded
+     */
+    public static boolean acquire(ChunkArea.OwnedChunk chunk) {
+        return acquire(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Removes an owner from a chunk tracked by a chunk area, see {@link #release(World, int, int)}
+     *
+     * @param chunk
+     */
+    public static void release(ChunkArea.OwnedChunk chunk) {
+        release(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Checks whether a chunk is kept loaded by an owner, or is lingering after the last owner released it
+     *
+     * @param chunk to check
+     * @return True if the chunk is kept loaded
+     */
+    public static boolean isKeptLoaded(Chunk chunk) {
+        LongHashMap<Ticket> worldTickets = tickets.get(chunk.getWorld().getUID());
+        return worldTickets != null && worldTickets.contains(MathUtil.longHashToLong(chunk.getX(), chunk.getZ()));
+    }
+
+    /**
+     * Requests the unloading of chunks that no longer have an owner, and whose linger time has passed.
+     * Should be called every tick.
+     */
+    public static void update() {
+        update(System.currentTimeMillis());
+    }
+
+    static void update(long time) {
+        while (!pendingRelease.isEmpty()) {
+            PendingRelease pending = pendingRelease.peek();
+            Ticket ticket = pending.ticket;
+            if (ticket.owners == 0 && ticket.releaseTime == pending.releaseTime) {
+                if (time < pending.releaseTime) {
+                    break;
+                }
+                LongHashMap<Ticket> worldTickets = tickets.get(ticket.world.getUID());
+                long key = MathUtil.longHashToLong(ticket.cx, ticket.cz);
+                if (worldTickets != null && worldTickets.get(key) == ticket) {
+                    worldTickets.remove(key);
+                }
+                ticket.releaseTime = 0; // Ignore other pending releases of this ticket
+                ticket.world.unloadChunkRequest(ticket.cx, ticket.cz);
+            }
+            pendingRelease.poll();
+        }
+    }
+
+    /**
+     * Forgets about all chunks kept loaded, without unloading them
+     */
+    public static void deinit() {
+        tickets.clear();
+        pendingRelease.clear();
+    }
+
+    private static final class Ticket {
+        public final World world;
+        public final int cx, cz;
+        public int owners = 0;
+        public long releaseTime = 0;
+
+        public Ticket(World world, int cx, int cz) {
+            this.world = world;
+            this.cx = cx;
+            this.cz = cz;
+        }
+    }
+
+    private static final class PendingRelease {
+        public final Ticket ticket;
+        public final long releaseTime;
+
+        public PendingRelease(Ticket ticket) {
+            this.ticket = ticket;
+            this.releaseTime = ticket.releaseTime;
+        }
+    }
+}
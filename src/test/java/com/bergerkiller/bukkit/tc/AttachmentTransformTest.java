@@ -0,0 +1,115 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.*;
+
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.math.Matrix4x4;
+import com.bergerkiller.bukkit.tc.attachments.control.CartAttachment;
+
+/**
+ * Tests the re-use of the transforms of attachments, and skipping the update of attachments that did not move
+ */
+public class AttachmentTransformTest {
+
+    @Test
+    public void testReuseTransforms() {
+        TestAttachment root = new TestAttachment();
+        TestAttachment child = root.add(new TestAttachment());
+        Matrix4x4 transform = new Matrix4x4();
+
+        // First update, both last and current transform are the same
+        CartAttachment.updatePositions(root, transform);
+        assertPosition(0.0, 1.0, 0.0, root.transform);
+        assertPosition(0.0, 1.0, 0.0, root.last_transform);
+        assertPosition(0.0, 2.0, 0.0, child.transform);
+        Matrix4x4 rootA = root.transform;
+        Matrix4x4 rootB = root.last_transform;
+        assertNotSame(rootA, rootB);
+
+        // Moving swaps the transforms, and the new transform is calculated in place
+        transform.translate(5.0, 0.0, 0.0);
+        CartAttachment.updatePositions(root, transform);
+        assertPosition(5.0, 1.0, 0.0, root.transform);
+        assertPosition(0.0, 1.0, 0.0, root.last_transform);
+        assertPosition(5.0, 2.0, 0.0, child.transform);
+        assertPosition(0.0, 2.0, 0.0, child.last_transform);
+        assertSame(rootB, root.transform);
+        assertSame(rootA, root.last_transform);
+    }
+
+    @Test
+    public void testSkipUnchanged() {
+        TestAttachment root = new TestAttachment();
+        TestAttachment child = root.add(new TestAttachment());
+        Matrix4x4 transform = new Matrix4x4();
+        CartAttachment.updatePositions(root, transform);
+        assertEquals(1, root.updates);
+        assertEquals(1, child.updates);
+
+        // Not moved since the first update, nothing is calculated
+        CartAttachment.updatePositions(root, transform);
+        assertEquals(1, root.updates);
+        assertEquals(1, child.updates);
+
+        // Moved, and then updated once more after stopping, so last and current transform become equal
+        transform.translate(0.0, 0.0, 3.0);
+        CartAttachment.updatePositions(root, transform);
+        assertEquals(2, root.updates);
+        CartAttachment.updatePositions(root, transform);
+        assertEquals(3, root.updates);
+        assertEquals(3, child.updates);
+        assertPosition(0.0, 1.0, 3.0, root.last_transform);
+        assertPosition(0.0, 1.0, 3.0, root.transform);
+
+        CartAttachment.updatePositions(root, transform);
+        assertEquals(3, root.updates);
+        assertEquals(3, child.updates);
+    }
+
+    private static void assertPosition(double x, double y, double z, Matrix4x4 transform) {
+        Vector pos = transform.toVector();
+        assertEquals(x, pos.getX(), 1e-6);
+        assertEquals(y, pos.getY(), 1e-6);
+        assertEquals(z, pos.getZ(), 1e-6);
+    }
+
+    // Attachment positioned a block above its parent
+    private static final class TestAttachment extends CartAttachment {
+        public int updates = 0;
+
+        public TestAttachment() {
+            this.local_transform = new Matrix4x4();
+            this.local_transform.translate(0.0, 1.0, 0.0);
+        }
+
+        public TestAttachment add(TestAttachment child) {
+            this.children.add(child);
+            return child;
+        }
+
+        @Override
+        public void onPositionUpdate() {
+            super.onPositionUpdate();
+            this.updates++;
+        }
+
+        @Override
+        public void makeVisible(Player viewer) {
+        }
+
+        @Override
+        public void makeHidden(Player viewer) {
+        }
+
+        @Override
+        public void onTick() {
+        }
+
+        @Override
+        public void onMove(boolean absolute) {
+        }
+    }
+}
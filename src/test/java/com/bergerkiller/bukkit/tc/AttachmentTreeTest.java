@@ -0,0 +1,112 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.*;
+
+import org.bukkit.entity.Player;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.tc.attachments.control.AttachmentTree;
+import com.bergerkiller.bukkit.tc.attachments.control.CartAttachment;
+
+/**
+ * Tests the flattened storage of the attachments of a minecart
+ */
+public class AttachmentTreeTest {
+
+    @Test
+    public void testPreOrder() {
+        // root
+        //  - a
+        //    - a1
+        //    - a2
+        //  - b
+        //    - b1
+        TestAttachment root = new TestAttachment("root", -1);
+        TestAttachment a = root.add(new TestAttachment("a", -1));
+        TestAttachment a1 = a.add(new TestAttachment("a1", -1));
+        TestAttachment a2 = a.add(new TestAttachment("a2", -1));
+        TestAttachment b = root.add(new TestAttachment("b", -1));
+        TestAttachment b1 = b.add(new TestAttachment("b1", -1));
+
+        AttachmentTree tree = new AttachmentTree(root);
+        CartAttachment[] expected = {root, a, a1, a2, b, b1};
+        int[] expectedParents = {-1, 0, 1, 1, 0, 4};
+        assertEquals(expected.length, tree.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertSame("attachment " + i, expected[i], tree.get(i));
+            assertEquals("parent of " + expected[i], expectedParents[i], tree.getParentIndex(i));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0, AttachmentTree.EMPTY.size());
+        assertNull(AttachmentTree.EMPTY.findAttachment(1));
+    }
+
+    @Test
+    public void testFindAttachment() {
+        TestAttachment root = new TestAttachment("root", 10);
+        TestAttachment seat = root.add(new TestAttachment("seat", 20));
+        TestAttachment item = seat.add(new TestAttachment("item", -1));
+        item.otherEntityId = 30;
+
+        AttachmentTree tree = new AttachmentTree(root);
+        assertSame(root, tree.findAttachment(10));
+        assertSame(seat, tree.findAttachment(20));
+        assertSame(item, tree.findAttachment(30)); // Not mounted, found by scanning
+        assertNull(tree.findAttachment(40));
+
+        // When an entity is respawned with a new id, the old id must no longer find it
+        seat.entityId = 21;
+        assertNull(tree.findAttachment(20));
+        assertSame(seat, tree.findAttachment(21));
+    }
+
+    private static final class TestAttachment extends CartAttachment {
+        private final String name;
+        public int entityId;
+        public int otherEntityId = -1;
+
+        public TestAttachment(String name, int entityId) {
+            this.name = name;
+            this.entityId = entityId;
+        }
+
+        public TestAttachment add(TestAttachment child) {
+            this.children.add(child);
+            return child;
+        }
+
+        @Override
+        public boolean containsEntityId(int entityId) {
+            return entityId != -1 && (entityId == this.entityId || entityId == this.otherEntityId);
+        }
+
+        @Override
+        public int getMountEntityId() {
+            return this.entityId;
+        }
+
+        @Override
+        public void makeVisible(Player viewer) {
+        }
+
+        @Override
+        public void makeHidden(Player viewer) {
+        }
+
+        @Override
+        public void onTick() {
+        }
+
+        @Override
+        public void onMove(boolean absolute) {
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+}
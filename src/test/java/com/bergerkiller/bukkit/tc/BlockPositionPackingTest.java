@@ -0,0 +1,89 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the packing of block coordinates into a single long, as used as key by the rail member cache
+ */
+public class BlockPositionPackingTest {
+    private static final int MIN_XZ = -(1 << 25);
+    private static final int MAX_XZ = (1 << 25) - 1;
+    private static final int[] XZ_VALUES = {MIN_XZ, MIN_XZ + 1, -30000000, -1, 0, 1, 30000000, MAX_XZ - 1, MAX_XZ};
+    private static final int[] Y_VALUES = {-64, -1, 0, 1, 255, 256, 319, 4095};
+
+    @Test
+    public void testFieldsDoNotOverlap() {
+        for (int x : XZ_VALUES) {
+            for (int y : Y_VALUES) {
+                for (int z : XZ_VALUES) {
+                    long key = Util.packBlockPosition(x, y, z);
+                    String coords = "[" + x + ", " + y + ", " + z + "]";
+                    assertEquals("x of " + coords, x, unpackX(key));
+                    assertEquals("y of " + coords, y & 0xFFF, unpackY(key));
+                    assertEquals("z of " + coords, z, unpackZ(key));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnique() {
+        Set<Long> keys = new HashSet<Long>();
+        int count = 0;
+        for (int x : XZ_VALUES) {
+            for (int y : Y_VALUES) {
+                for (int z : XZ_VALUES) {
+                    // y 4095 and -1 are the same 12-bit value, only one of them can be used
+                    if (y == 4095) {
+                        continue;
+                    }
+                    keys.add(Long.valueOf(Util.packBlockPosition(x, y, z)));
+                    count++;
+                }
+            }
+        }
+        assertEquals(count, keys.size());
+    }
+
+    @Test
+    public void testNegativeNeighbours() {
+        // Blocks next to each other around 0 must never share a key
+        Set<Long> keys = new HashSet<Long>();
+        for (int x = -2; x <= 2; x++) {
+            for (int y = -2; y <= 2; y++) {
+                for (int z = -2; z <= 2; z++) {
+                    assertTrue(keys.add(Long.valueOf(Util.packBlockPosition(x, y, z))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStride() {
+        // Away from the wrap-around of the fields, moving one block changes only that field by one
+        long key = Util.packBlockPosition(100, 64, -100);
+        assertEquals(key + (1L << 38), Util.packBlockPosition(101, 64, -100));
+        assertEquals(key - (1L << 38), Util.packBlockPosition(99, 64, -100));
+        assertEquals(key + (1L << 12), Util.packBlockPosition(100, 64, -99));
+        assertEquals(key - (1L << 12), Util.packBlockPosition(100, 64, -101));
+        assertEquals(key + 1L, Util.packBlockPosition(100, 65, -100));
+        assertEquals(key - 1L, Util.packBlockPosition(100, 63, -100));
+    }
+
+    private static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    private static int unpackY(long key) {
+        return (int) (key & 0xFFFL);
+    }
+
+    private static int unpackZ(long key) {
+        return (int) ((key << 26) >> 38);
+    }
+}
@@ -0,0 +1,124 @@
+package com.bergerkiller.bukkit.tc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.BlockLocation;
+import com.bergerkiller.bukkit.tc.pathfinding.PathConnection;
+import com.bergerkiller.bukkit.tc.pathfinding.PathNode;
+import com.bergerkiller.bukkit.tc.pathfinding.PathRoutingGraph;
+import com.bergerkiller.bukkit.tc.pathfinding.PathRoutingTable;
+
+/**
+ * Tests the route finding of the path finding routing graph
+ */
+public class PathRoutingGraphTest {
+
+    @After
+    public void cleanup() {
+        PathNode.clearAll();
+    }
+
+    @Test
+    public void testShortestPath() {
+        PathNode a = createNode("a", 0, 0);
+        PathNode b = createNode("b", 10, 0);
+        PathNode c = createNode("c", 0, 10);
+        PathNode d = createNode("d", 10, 10);
+        PathNode e = createNode("e", 20, 20);
+        a.addNeighbour(b, 10.0, "east");
+        a.addNeighbour(c, 10.0, "south");
+        b.addNeighbour(d, 15.0, "south");
+        c.addNeighbour(d, 10.0, "east");
+
+        PathRoutingGraph graph = new PathRoutingGraph(PathNode.getAll());
+        assertEquals(5, graph.getNodeCount());
+
+        // The route through c is shorter, so the south junction must be taken
+        PathConnection conn = graph.findConnection(a, d, false);
+        assertNotNull(conn);
+        assertEquals(d, conn.destination);
+        assertEquals(20.0, conn.distance, 1e-9);
+        assertEquals("south", conn.junctionName);
+        assertArrayEquals(new PathNode[] {a, c, d}, graph.findRoute(a, d, false));
+
+        // The routing table must agree
+        PathRoutingTable table = graph.createRoutingTable(d);
+        PathConnection tableConn = table.findConnection(a);
+        assertNotNull(tableConn);
+        assertEquals(20.0, tableConn.distance, 1e-9);
+        assertEquals("south", tableConn.junctionName);
+
+        // Connections are one-way, and e is not connected at all
+        assertNull(graph.findConnection(d, a, false));
+        assertNull(graph.findConnection(a, e, false));
+        assertEquals(0, graph.findRoute(a, e, false).length);
+        assertNull(table.findConnection(e));
+    }
+
+    @Test
+    public void testHeuristicMatchesDijkstra() {
+        // Grid of nodes with connections to neighbouring nodes in both directions
+        // Connections are never shorter than the straight line between nodes,
+        // otherwise the heuristic would not find the shortest route.
+        final int size = 8;
+        final double spacing = 10.0;
+        Random random = new Random(12345);
+        List<PathNode> nodes = new ArrayList<PathNode>();
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                nodes.add(createNode("n" + x + "_" + z, (int) (x * spacing), (int) (z * spacing)));
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                PathNode node = nodes.get(x * size + z);
+                if (x > 0 && random.nextInt(5) != 0) {
+                    connect(node, nodes.get((x - 1) * size + z), spacing + random.nextDouble() * spacing, random);
+                }
+                if (z > 0 && random.nextInt(5) != 0) {
+                    connect(node, nodes.get(x * size + z - 1), spacing + random.nextDouble() * spacing, random);
+                }
+            }
+        }
+
+        PathRoutingGraph graph = new PathRoutingGraph(PathNode.getAll());
+        for (PathNode from : nodes) {
+            for (PathNode to : nodes) {
+                if (from == to) {
+                    continue;
+                }
+                PathConnection dijkstra = graph.findConnection(from, to, false);
+                PathConnection astar = graph.findConnection(from, to, true);
+                if (dijkstra == null) {
+                    assertNull(astar);
+                } else {
+                    assertNotNull(astar);
+                    assertEquals(dijkstra.distance, astar.distance, 1e-9);
+                    assertEquals(dijkstra.distance, graph.createRoutingTable(to).findConnection(from).distance, 1e-9);
+                }
+            }
+        }
+    }
+
+    // Connects two nodes in both directions, or in only one of them every now and then
+    private static void connect(PathNode a, PathNode b, double distance, Random random) {
+        int dirs = random.nextInt(4);
+        if (dirs != 1) {
+            a.addNeighbour(b, distance, b.getName());
+        }
+        if (dirs != 2) {
+            b.addNeighbour(a, distance, a.getName());
+        }
+    }
+
+    private static PathNode createNode(String name, int x, int z) {
+        return PathNode.getOrCreate(name, new BlockLocation("world", x, 64, z));
+    }
+}
@@ -0,0 +1,49 @@
+package com.bergerkiller.bukkit.tc.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the eviction of the least recently accessed entries of the bounded cache map
+ */
+public class BoundedCacheMapTest {
+
+    @Test
+    public void testEvictsEldest() {
+        BoundedCacheMap<String, Integer> map = new BoundedCacheMap<String, Integer>(3);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        assertEquals(3, map.size());
+
+        map.put("d", 4);
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey("a"));
+        assertEquals(Arrays.asList("b", "c", "d"), new ArrayList<String>(map.keySet()));
+    }
+
+    @Test
+    public void testAccessOrder() {
+        BoundedCacheMap<String, Integer> map = new BoundedCacheMap<String, Integer>(3);
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+
+        // Accessing a makes b the least recently accessed entry
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        map.put("d", 4);
+        assertFalse(map.containsKey("b"));
+        assertEquals(Arrays.asList("c", "a", "d"), new ArrayList<String>(map.keySet()));
+
+        // Replacing the value of c counts as an access, so a is evicted next
+        map.put("c", 5);
+        map.put("e", 6);
+        assertFalse(map.containsKey("a"));
+        assertEquals(Arrays.asList("d", "c", "e"), new ArrayList<String>(map.keySet()));
+        assertEquals(Integer.valueOf(5), map.get("c"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.bergerkiller.bukkit.tc.controller;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.tc.controller.components.RailPath;
+
+/**
+ * Tests which rail paths are plain track, over which trains move in update steps of up to a block
+ */
+public class PlainTrackTest {
+
+    @Test
+    public void testStraightLevel() {
+        RailPath.Point dir = MinecartGroup.getPlainDirection(path(0.0, 0.0625, 0.5, 1.0, 0.0625, 0.5), null);
+        assertNotNull(dir);
+        assertEquals(1.0, dir.x, 1e-6);
+        assertEquals(0.0, dir.z, 1e-6);
+
+        // Along the z-axis, made of two segments
+        dir = MinecartGroup.getPlainDirection(path(0.5, 0.0625, 0.0, 0.5, 0.0625, 0.5, 0.5, 0.0625, 1.0), null);
+        assertNotNull(dir);
+        assertEquals(1.0, dir.z, 1e-6);
+    }
+
+    @Test
+    public void testNotPlain() {
+        // Sloped
+        assertNull(MinecartGroup.getPlainDirection(path(0.0, 0.0625, 0.5, 1.0, 1.0625, 0.5), null));
+
+        // Diagonal, a step of a block could skip a rails block
+        assertNull(MinecartGroup.getPlainDirection(path(0.0, 0.0625, 0.0, 1.0, 0.0625, 1.0), null));
+
+        // Curved
+        assertNull(MinecartGroup.getPlainDirection(path(0.0, 0.0625, 0.5, 0.5, 0.0625, 0.5, 0.5, 0.0625, 1.0), null));
+
+        // No path at all
+        assertNull(MinecartGroup.getPlainDirection(RailPath.EMPTY, null));
+    }
+
+    @Test
+    public void testSameDirection() {
+        RailPath straightX = path(0.0, 0.0625, 0.5, 1.0, 0.0625, 0.5);
+        RailPath straightZ = path(0.5, 0.0625, 0.0, 0.5, 0.0625, 1.0);
+        RailPath.Point dir = MinecartGroup.getPlainDirection(straightX, null);
+
+        // Rails along the same axis are plain in either direction, rails along the other axis are not
+        assertSame(dir, MinecartGroup.getPlainDirection(straightX, dir));
+        assertSame(dir, MinecartGroup.getPlainDirection(path(1.0, 0.0625, 0.5, 0.0, 0.0625, 0.5), dir));
+        assertNull(MinecartGroup.getPlainDirection(straightZ, dir));
+    }
+
+    private static RailPath path(double... coordinates) {
+        RailPath.Point[] points = new RailPath.Point[coordinates.length / 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new RailPath.Point(coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2]);
+        }
+        return RailPath.create(points);
+    }
+}
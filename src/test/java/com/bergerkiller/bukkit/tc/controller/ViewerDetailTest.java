@@ -0,0 +1,71 @@
+package com.bergerkiller.bukkit.tc.controller;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.tc.TCConfig;
+import com.bergerkiller.bukkit.tc.controller.MinecartMemberNetwork.ViewerDetail;
+
+/**
+ * Tests the distance bands at which players see the attachments of minecarts in less detail
+ */
+public class ViewerDetailTest {
+    private double oldReducedDistance;
+    private double oldRootOnlyDistance;
+
+    @Before
+    public void setup() {
+        this.oldReducedDistance = TCConfig.attachmentReducedDetailDistance;
+        this.oldRootOnlyDistance = TCConfig.attachmentRootOnlyDistance;
+        TCConfig.attachmentReducedDetailDistance = 40.0;
+        TCConfig.attachmentRootOnlyDistance = 80.0;
+    }
+
+    @After
+    public void cleanup() {
+        TCConfig.attachmentReducedDetailDistance = this.oldReducedDistance;
+        TCConfig.attachmentRootOnlyDistance = this.oldRootOnlyDistance;
+    }
+
+    @Test
+    public void testBands() {
+        assertEquals(ViewerDetail.FULL, detail(10.0, null));
+        assertEquals(ViewerDetail.FULL, detail(40.0, null));
+        assertEquals(ViewerDetail.REDUCED, detail(41.0, null));
+        assertEquals(ViewerDetail.REDUCED, detail(80.0, null));
+        assertEquals(ViewerDetail.ROOT_ONLY, detail(81.0, null));
+    }
+
+    @Test
+    public void testHysteresis() {
+        // Moving away, viewers change band at the configured distance
+        assertEquals(ViewerDetail.REDUCED, detail(41.0, ViewerDetail.FULL));
+        assertEquals(ViewerDetail.ROOT_ONLY, detail(81.0, ViewerDetail.REDUCED));
+
+        // Moving closer, viewers must come 10% closer before they change band again
+        assertEquals(ViewerDetail.ROOT_ONLY, detail(75.0, ViewerDetail.ROOT_ONLY));
+        assertEquals(ViewerDetail.REDUCED, detail(71.0, ViewerDetail.ROOT_ONLY));
+        assertEquals(ViewerDetail.REDUCED, detail(38.0, ViewerDetail.REDUCED));
+        assertEquals(ViewerDetail.FULL, detail(35.0, ViewerDetail.REDUCED));
+        assertEquals(ViewerDetail.FULL, detail(35.0, ViewerDetail.ROOT_ONLY));
+    }
+
+    @Test
+    public void testDisabledBand() {
+        TCConfig.attachmentReducedDetailDistance = 0.0;
+        assertEquals(ViewerDetail.FULL, detail(60.0, null));
+        assertEquals(ViewerDetail.ROOT_ONLY, detail(81.0, ViewerDetail.FULL));
+        assertEquals(ViewerDetail.FULL, detail(71.0, ViewerDetail.ROOT_ONLY));
+
+        TCConfig.attachmentReducedDetailDistance = 40.0;
+        TCConfig.attachmentRootOnlyDistance = 0.0;
+        assertEquals(ViewerDetail.REDUCED, detail(1000.0, ViewerDetail.ROOT_ONLY));
+    }
+
+    private static ViewerDetail detail(double distance, ViewerDetail current) {
+        return ViewerDetail.fromDistance(distance * distance, current);
+    }
+}
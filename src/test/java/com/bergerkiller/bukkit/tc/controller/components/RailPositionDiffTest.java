@@ -0,0 +1,115 @@
+package com.bergerkiller.bukkit.tc.controller.components;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.wrappers.LongHashMap;
+import com.bergerkiller.bukkit.tc.Util;
+
+/**
+ * Tests the matching of previous and new rails by position, as done when refreshing the rails of a train
+ */
+public class RailPositionDiffTest {
+
+    @Test
+    public void testMoveForward() {
+        // Train of two carts moves one block forward along the x-axis
+        Rail a0 = new Rail("a", 0), b0 = new Rail("b", 1), b1 = new Rail("b", 2);
+        Rail a1 = new Rail("a", 1), b2 = new Rail("b", 2), b3 = new Rail("b", 3);
+
+        TestDiff diff = new TestDiff();
+        diff.apply(Arrays.asList(a0, b0, b1), Arrays.asList(a1, b2, b3));
+        assertEquals(Arrays.asList("b@1 -> a@1", "b@2 -> b@2"), diff.matched);
+        assertEquals(Arrays.asList("b@3"), diff.added);
+        assertEquals(Arrays.asList("a@0"), diff.removed);
+    }
+
+    @Test
+    public void testDuplicatePositions() {
+        // Two rails at the same position, for example when a train loops back onto itself
+        Rail a0 = new Rail("a", 0), b0 = new Rail("b", 0), c1 = new Rail("c", 1);
+        Rail d0 = new Rail("d", 0), e0 = new Rail("e", 0), f0 = new Rail("f", 0);
+
+        TestDiff diff = new TestDiff();
+        diff.apply(Arrays.asList(a0, b0, c1), Arrays.asList(d0, e0, f0));
+        assertEquals(Arrays.asList("a@0 -> d@0", "b@0 -> e@0"), diff.matched);
+        assertEquals(Arrays.asList("f@0"), diff.added);
+        assertEquals(Arrays.asList("c@1"), diff.removed);
+
+        // The other way around, previous duplicates that are not matched must be removed
+        diff = new TestDiff();
+        diff.apply(Arrays.asList(d0, e0, f0), Arrays.asList(a0, c1));
+        assertEquals(Arrays.asList("d@0 -> a@0"), diff.matched);
+        assertEquals(Arrays.asList("c@1"), diff.added);
+        assertEquals(Arrays.asList("e@0", "f@0"), diff.removed);
+
+        // Nothing of the previous run may be remembered
+        diff.matched.clear();
+        diff.added.clear();
+        diff.removed.clear();
+        diff.apply(new ArrayList<Rail>(), Arrays.asList(d0));
+        assertTrue(diff.matched.isEmpty());
+        assertEquals(Arrays.asList("d@0"), diff.added);
+        assertTrue(diff.removed.isEmpty());
+    }
+
+    @Test
+    public void testIndex() {
+        Rail a0 = new Rail("a", 0), b0 = new Rail("b", 0), c1 = new Rail("c", 1);
+        LongHashMap<Rail> index = new LongHashMap<Rail>();
+        index.put(Util.packBlockPosition(5, 64, 0), c1);
+
+        TestDiff diff = new TestDiff();
+        diff.index(Arrays.asList(a0, b0, c1), index);
+        assertSame(a0, index.get(diff.getKey(a0))); // First rails at a position is stored
+        assertSame(c1, index.get(diff.getKey(c1)));
+        assertNull(index.get(Util.packBlockPosition(5, 64, 0))); // Cleared before indexing
+        assertNull(index.get(Util.packBlockPosition(2, 64, 0)));
+    }
+
+    private static final class Rail {
+        public final String member;
+        public final int x;
+
+        public Rail(String member, int x) {
+            this.member = member;
+            this.x = x;
+        }
+
+        @Override
+        public String toString() {
+            return this.member + "@" + this.x;
+        }
+    }
+
+    private static final class TestDiff extends RailPositionDiff<Rail> {
+        public final List<String> matched = new ArrayList<String>();
+        public final List<String> added = new ArrayList<String>();
+        public final List<String> removed = new ArrayList<String>();
+
+        @Override
+        protected long getKey(Rail rail) {
+            return Util.packBlockPosition(rail.x, 64, 0);
+        }
+
+        @Override
+        protected void onMatched(Rail oldRail, Rail newRail) {
+            this.matched.add(oldRail + " -> " + newRail);
+        }
+
+        @Override
+        protected void onAdded(Rail newRail) {
+            this.added.add(newRail.toString());
+        }
+
+        @Override
+        protected void onRemoved(Rail oldRail) {
+            this.removed.add(oldRail.toString());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.bergerkiller.bukkit.tc.controller.components;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.junit.Test;
+
+/**
+ * Tests dropping the steps the head of a train moved past when looking at the rails ahead
+ */
+public class TrackLookAheadGroupTest {
+    private final World world = (World) Proxy.newProxyInstance(World.class.getClassLoader(),
+            new Class<?>[] { World.class }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    });
+
+    @Test
+    public void testTrimMovedPast() {
+        // Straight rails along x from 1 to 4, walked before when the head was on rails 0
+        TrackLookAheadGroup lookAhead = createWalked(1, 2, 3, 4);
+
+        // Head moved onto rails 1, entering rails 2 next
+        assertTrue(lookAhead.trimSteps(createBlock(1), createEntered(2, 1.0)));
+        assertStepRails(lookAhead, 2, 3, 4);
+
+        // Head is still on rails 1, nothing must be dropped
+        assertTrue(lookAhead.trimSteps(createBlock(1), createEntered(2, 1.0)));
+        assertStepRails(lookAhead, 2, 3, 4);
+
+        // Head moved two rails further at once
+        assertTrue(lookAhead.trimSteps(createBlock(3), createEntered(4, 1.0)));
+        assertStepRails(lookAhead, 4);
+    }
+
+    @Test
+    public void testNotFound() {
+        TrackLookAheadGroup lookAhead = createWalked(1, 2, 3, 4);
+
+        // Head turned around, so it enters rails 2 moving the other way
+        assertFalse(lookAhead.trimSteps(createBlock(1), createEntered(2, -1.0)));
+
+        // Head is on different rails than the rails before the entered rails, for example after a junction
+        assertFalse(lookAhead.trimSteps(createBlock(7), createEntered(3, 1.0)));
+
+        // Rails entered are beyond where was walked
+        assertFalse(lookAhead.trimSteps(createBlock(4), createEntered(5, 1.0)));
+
+        // Nothing may be dropped when not found
+        assertStepRails(lookAhead, 1, 2, 3, 4);
+    }
+
+    private TrackLookAheadGroup createWalked(int... railX) {
+        TrackLookAheadGroup lookAhead = new TrackLookAheadGroup(null);
+        for (int x : railX) {
+            lookAhead.getSteps().add(new TrackLookAheadGroup.Step(createEntered(x, 1.0), x));
+        }
+        return lookAhead;
+    }
+
+    private static void assertStepRails(TrackLookAheadGroup lookAhead, int... railX) {
+        List<TrackLookAheadGroup.Step> steps = lookAhead.getSteps();
+        assertEquals(railX.length, steps.size());
+        for (int i = 0; i < railX.length; i++) {
+            assertEquals(railX[i], steps.get(i).state.railBlock().getX());
+        }
+    }
+
+    // Rail state where rails along the x-axis are entered, moving along x in a direction
+    private RailState createEntered(int railX, double motX) {
+        RailState state = new RailState();
+        state.setRailBlock(createBlock(railX));
+        RailPath.Position position = state.position();
+        position.posX = (motX > 0.0) ? railX : (railX + 1.0);
+        position.posY = 64.0625;
+        position.posZ = 0.5;
+        position.motX = motX;
+        position.motY = 0.0;
+        position.motZ = 0.0;
+        return state;
+    }
+
+    private Block createBlock(final int x) {
+        return (Block) Proxy.newProxyInstance(Block.class.getClassLoader(), new Class<?>[] { Block.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                case "getWorld":
+                    return world;
+                case "getX":
+                    return x;
+                case "getY":
+                    return 64;
+                case "getZ":
+                    return 0;
+                case "hashCode":
+                    return x;
+                case "equals":
+                    return (args[0] instanceof Block) && ((Block) args[0]).getX() == x;
+                case "toString":
+                    return "rails " + x;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}
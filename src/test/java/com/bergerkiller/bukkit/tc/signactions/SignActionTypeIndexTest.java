@@ -0,0 +1,81 @@
+package com.bergerkiller.bukkit.tc.signactions;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.tc.events.SignActionEvent;
+import com.bergerkiller.bukkit.tc.events.SignChangeActionEvent;
+
+/**
+ * Tests the selection of the sign actions that could match a sign by its sign type
+ */
+public class SignActionTypeIndexTest {
+
+    @Test
+    public void testCandidates() {
+        TestAction station = new TestAction("station");
+        TestAction any = new TestAction((String[]) null);
+        TestAction switcher = new TestAction("switcher", "tag");
+        TestAction speed = new TestAction("speed", "launch");
+        TestAction spawn = new TestAction("spawn");
+        SignActionTypeIndex index = new SignActionTypeIndex(Arrays.<SignAction>asList(station, any, switcher, speed, spawn));
+
+        // Actions matching any sign are included in registration order
+        assertEquals(Arrays.asList(station, any, switcher, speed, spawn), index.getCandidates("station 5"));
+        assertEquals(Arrays.asList(any, switcher), index.getCandidates("tag"));
+        assertEquals(Arrays.asList(any, speed), index.getCandidates("launch 5"));
+
+        // Only the first character is indexed, match() must still check the full sign type
+        assertSame(index.getCandidates("station"), index.getCandidates("switcher"));
+
+        // The first character is matched case-insensitively
+        assertEquals(Arrays.asList(station, any, switcher, speed, spawn), index.getCandidates("Station"));
+
+        // Sign types no action declares, and empty lines, only get the actions matching any sign
+        assertEquals(Collections.singletonList(any), index.getCandidates("eject"));
+        assertEquals(Collections.singletonList(any), index.getCandidates(""));
+    }
+
+    @Test
+    public void testNoActions() {
+        SignActionTypeIndex index = new SignActionTypeIndex(Collections.<SignAction>emptyList());
+        assertTrue(index.getCandidates("station").isEmpty());
+        assertTrue(index.getCandidates("").isEmpty());
+    }
+
+    private static final class TestAction extends SignAction {
+        private final String[] typeNames;
+
+        public TestAction(String... typeNames) {
+            this.typeNames = typeNames;
+        }
+
+        @Override
+        public String[] getTypeNames() {
+            return this.typeNames;
+        }
+
+        @Override
+        public boolean match(SignActionEvent info) {
+            return false;
+        }
+
+        @Override
+        public void execute(SignActionEvent info) {
+        }
+
+        @Override
+        public boolean build(SignChangeActionEvent event) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return (this.typeNames == null) ? "any" : Arrays.toString(this.typeNames);
+        }
+    }
+}
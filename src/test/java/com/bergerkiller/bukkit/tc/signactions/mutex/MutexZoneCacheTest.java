@@ -0,0 +1,98 @@
+package com.bergerkiller.bukkit.tc.signactions.mutex;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.common.bases.IntVector3;
+
+/**
+ * Tests the indexing of mutex zones by chunk, and the storage of mutex zones
+ */
+public class MutexZoneCacheTest {
+    private static final UUID WORLD = new UUID(1L, 2L);
+    private static final UUID OTHER_WORLD = new UUID(3L, 4L);
+
+    @After
+    public void cleanup() {
+        MutexZoneCache.deinit();
+    }
+
+    @Test
+    public void testChunkIndex() {
+        // Spans x 14 to 18 and z -2 to 2, which are four chunks
+        MutexZone zone = new MutexZone(WORLD, new IntVector3(16, 60, -3), new IntVector3(16, 64, 0), 2, 2, 2);
+        MutexZoneCache.add(zone);
+        assertSame(zone, MutexZoneCache.find(WORLD, new IntVector3(14, 64, 0)));
+        assertSame(zone, MutexZoneCache.find(WORLD, new IntVector3(18, 66, -2)));
+        assertSame(zone, MutexZoneCache.find(WORLD, new IntVector3(15, 62, 2)));
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(19, 64, 0)));
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(16, 67, 0)));
+        assertNull(MutexZoneCache.find(OTHER_WORLD, new IntVector3(16, 64, 0)));
+
+        // Nearby checks only look at the chunks around the position
+        assertTrue(MutexZoneCache.isMutexZoneNearby(WORLD, new IntVector3(21, 64, 0), 3));
+        assertFalse(MutexZoneCache.isMutexZoneNearby(WORLD, new IntVector3(22, 64, 0), 3));
+        assertTrue(MutexZoneCache.isMutexZoneNearby(WORLD, new IntVector3(16, 64, -5), 3));
+        assertFalse(MutexZoneCache.isMutexZoneNearby(OTHER_WORLD, new IntVector3(16, 64, 0), 3));
+
+        // Zones spanning multiple chunks are only returned once
+        assertEquals(Collections.singletonList(zone), MutexZoneCache.findNearbyZones(WORLD, new IntVector3(16, 64, 0), 8));
+
+        // Removing the zone removes it from all chunks
+        MutexZoneCache.remove(zone);
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(14, 64, 0)));
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(18, 66, -2)));
+        assertFalse(MutexZoneCache.isMutexZoneNearby(WORLD, new IntVector3(16, 64, 0), 3));
+        assertTrue(MutexZoneCache.findNearbyZones(WORLD, new IntVector3(16, 64, 0), 8).isEmpty());
+    }
+
+    @Test
+    public void testNeighbouringZones() {
+        MutexZone a = new MutexZone(WORLD, new IntVector3(-2, 60, 0), new IntVector3(-2, 64, 0), 1, 2, 1);
+        MutexZone b = new MutexZone(WORLD, new IntVector3(1, 60, 0), new IntVector3(1, 64, 0), 1, 2, 1);
+        MutexZoneCache.add(a);
+        MutexZoneCache.add(b);
+        assertSame(a, MutexZoneCache.find(WORLD, new IntVector3(-1, 64, 0)));
+        assertSame(b, MutexZoneCache.find(WORLD, new IntVector3(0, 64, 0)));
+        assertEquals(Arrays.asList(a, b), MutexZoneCache.findNearbyZones(WORLD, new IntVector3(-8, 64, 0), 10));
+
+        MutexZoneCache.remove(a);
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(-1, 64, 0)));
+        assertSame(b, MutexZoneCache.find(WORLD, new IntVector3(0, 64, 0)));
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        MutexZone zone = new MutexZone(WORLD, new IntVector3(-20, 60, 35), new IntVector3(-18, 64, 33), 1, 2, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream stream = new DataOutputStream(bytes)) {
+            zone.write(stream);
+        }
+        MutexZone read;
+        try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = MutexZone.read(stream);
+        }
+        assertEquals(zone.world, read.world);
+        assertEquals(zone.signBlock, read.signBlock);
+        assertEquals(zone.block, read.block);
+        assertEquals(zone.start, read.start);
+        assertEquals(zone.end, read.end);
+
+        // The zone read back is indexed the same, spanning chunks z 1 and 2
+        MutexZoneCache.add(read);
+        assertSame(read, MutexZoneCache.find(WORLD, new IntVector3(-19, 62, 30)));
+        assertSame(read, MutexZoneCache.find(WORLD, new IntVector3(-17, 66, 36)));
+        assertNull(MutexZoneCache.find(WORLD, new IntVector3(-17, 66, 37)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.bergerkiller.bukkit.tc.utils;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bergerkiller.bukkit.tc.TCConfig;
+
+/**
+ * Tests the reference counting and delayed unloading of chunks kept loaded by trains
+ */
+public class ChunkKeepAliveManagerTest {
+    private static final long FAR_FUTURE = Long.MAX_VALUE;
+    private final List<String> unloaded = new ArrayList<String>();
+    private int oldLingerTime;
+    private World world;
+    private World otherWorld;
+
+    @Before
+    public void setup() {
+        this.oldLingerTime = TCConfig.keepChunksLoadedLingerTime;
+        TCConfig.keepChunksLoadedLingerTime = 0;
+        this.world = createWorld("world");
+        this.otherWorld = createWorld("other");
+    }
+
+    @After
+    public void cleanup() {
+        ChunkKeepAliveManager.deinit();
+        TCConfig.keepChunksLoadedLingerTime = this.oldLingerTime;
+    }
+
+    @Test
+    public void testReferenceCounting() {
+        assertTrue(ChunkKeepAliveManager.acquire(this.world, 2, -3));
+        assertFalse(ChunkKeepAliveManager.acquire(this.world, 2, -3));
+        assertTrue(ChunkKeepAliveManager.acquire(this.otherWorld, 2, -3));
+        assertTrue(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.world, 2, -3)));
+        assertFalse(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.world, 3, -3)));
+
+        // One owner remains, so the chunk stays loaded
+        ChunkKeepAliveManager.release(this.world, 2, -3);
+        ChunkKeepAliveManager.update(FAR_FUTURE);
+        assertTrue(this.unloaded.isEmpty());
+        assertTrue(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.world, 2, -3)));
+
+        // Last owner releases it, the chunk lingers until update is called
+        ChunkKeepAliveManager.release(this.world, 2, -3);
+        assertTrue(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.world, 2, -3)));
+        ChunkKeepAliveManager.update(FAR_FUTURE);
+        assertEquals(Arrays.asList("world 2 -3"), this.unloaded);
+        assertFalse(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.world, 2, -3)));
+        assertTrue(ChunkKeepAliveManager.isKeptLoaded(createChunk(this.otherWorld, 2, -3)));
+
+        // Releasing more often than acquired does nothing
+        ChunkKeepAliveManager.release(this.world, 2, -3);
+        ChunkKeepAliveManager.update(FAR_FUTURE);
+        assertEquals(Arrays.asList("world 2 -3"), this.unloaded);
+    }
+
+    @Test
+    public void testAcquireWhileLingering() {
+        assertTrue(ChunkKeepAliveManager.acquire(this.world, 0, 0));
+        ChunkKeepAliveManager.release(this.world, 0, 0);
+
+        // Still lingering, so it is not loaded again and is no longer unloaded
+        assertFalse(ChunkKeepAliveManager.acquire(this.world, 0, 0));
+        ChunkKeepAliveManager.update(FAR_FUTURE);
+        assertTrue(this.unloaded.isEmpty());
+
+        ChunkKeepAliveManager.release(this.world, 0, 0);
+        ChunkKeepAliveManager.update(FAR_FUTURE);
+        assertEquals(Arrays.asList("world 0 0"), this.unloaded);
+    }
+
+    @Test
+    public void testLingerOrdering() {
+        ChunkKeepAliveManager.acquire(this.world, 1, 0);
+        ChunkKeepAliveManager.acquire(this.world, 2, 0);
+        ChunkKeepAliveManager.acquire(this.world, 3, 0);
+
+        long start = System.currentTimeMillis();
+        ChunkKeepAliveManager.release(this.world, 1, 0);
+        ChunkKeepAliveManager.release(this.world, 2, 0);
+
+        // Chunk 1 is acquired and released again, it must now unload after chunk 2
+        waitNextMillisecond();
+        ChunkKeepAliveManager.acquire(this.world, 1, 0);
+        ChunkKeepAliveManager.release(this.world, 1, 0);
+
+        // Chunk 3 lingers much longer, and is released last
+        TCConfig.keepChunksLoadedLingerTime = 100000;
+        ChunkKeepAliveManager.release(this.world, 3, 0);
+        long end = System.currentTimeMillis();
+
+        ChunkKeepAliveManager.update(start - 1);
+        assertTrue(this.unloaded.isEmpty());
+
+        ChunkKeepAliveManager.update(end);
+        assertEquals(Arrays.asList("world 2 0", "world 1 0"), this.unloaded);
+
+        ChunkKeepAliveManager.update(end + 50000);
+        assertEquals(Arrays.asList("world 2 0", "world 1 0"), this.unloaded);
+
+        ChunkKeepAliveManager.update(end + 100000);
+        assertEquals(Arrays.asList("world 2 0", "world 1 0", "world 3 0"), this.unloaded);
+    }
+
+    // Makes sure chunks released after this get a later release time
+    private static void waitNextMillisecond() {
+        long time = System.currentTimeMillis();
+        while (System.currentTimeMillis() == time) {
+            Thread.yield();
+        }
+    }
+
+    private World createWorld(final String name) {
+        final UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                case "getUID":
+                    return uuid;
+                case "getName":
+                case "toString":
+                    return name;
+                case "unloadChunkRequest":
+                    unloaded.add(name + " " + args[0] + " " + args[1]);
+                    return Boolean.TRUE;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+
+    private static Chunk createChunk(final World world, final int cx, final int cz) {
+        return (Chunk) Proxy.newProxyInstance(Chunk.class.getClassLoader(), new Class<?>[] { Chunk.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                case "getWorld":
+                    return world;
+                case "getX":
+                    return cx;
+                case "getZ":
+                    return cz;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}